@@ -0,0 +1,21 @@
+#!/bin/bash
+
+# Script para compilar e executar os benchmarks
+# Uso: ./benchmark.sh [tamanhos, ex: 1000,100000] [filtro pelo nome do benchmark]
+# Opções da JVM em JAVA_OPTS, ex: JAVA_OPTS="-Xmx8g -Dbenchmark.time=5000" ./benchmark.sh 10000000
+
+echo "Compilando o projeto..."
+
+mkdir -p bin
+
+javac -d bin src/**/*.java src/*.java
+
+if [ $? -eq 0 ]; then
+    echo ""
+    echo "Executando os benchmarks..."
+    echo ""
+    java $JAVA_OPTS -cp bin benchmark.LibraryBenchmarks "$@"
+else
+    echo "Erro na compilação!"
+    exit 1
+fi
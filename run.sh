@@ -16,7 +16,7 @@ if [ $? -eq 0 ]; then
     echo ""
     echo "Executando o aplicativo..."
     echo ""
-    java -cp bin Main
+    java -cp bin Main "$@"
 else
     echo "Erro na compilação!"
     exit 1
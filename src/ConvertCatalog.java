@@ -0,0 +1,24 @@
+import service.MappedCatalog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ConvertCatalog {
+
+    public static void main(String[] args) {
+        Path csvPath = Paths.get(args.length > 0 ? args[0] : "base-books.csv");
+        Path catalogPath = Paths.get(args.length > 1 ? args[1] : "base-books.bin");
+
+        try {
+            long start = System.nanoTime();
+            int total = MappedCatalog.convertCsv(csvPath, catalogPath);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println(total + " livros convertidos para " + catalogPath + " em " + elapsed + " ms.");
+        } catch (IOException e) {
+            System.err.println("Erro ao converter catálogo: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
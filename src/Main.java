@@ -1,24 +1,110 @@
 import model.Book;
 import service.BookApiService;
+import service.LibraryMetrics;
 import service.LibraryService;
+import service.MappedCatalog;
+import service.WriteAheadLog;
 import ui.ConsoleUI;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 public class Main {
 
+    private static final String DEFAULT_CSV_FILE = "base-books.csv";
+
+    // Usage: java -cp bin Main [catalog.csv]; the binary catalog and the log sit next to the CSV with the same name
     public static void main(String[] args) {
-        List<Book> initialBooks = BookApiService.loadBooksFromCsv();
+        Path csvPath = Paths.get(args.length > 0 ? args[0] : DEFAULT_CSV_FILE);
+        Path catalogPath = withExtension(csvPath, ".bin");
+        Path logPath = withExtension(csvPath, ".wal");
+
+        LibraryService libraryService = loadLibrary(csvPath, catalogPath);
 
-        if (initialBooks.isEmpty()) {
+        if (libraryService.getTotalBooks() == 0) {
             System.out.println("Aviso: Não foi possível carregar livros do arquivo.");
             System.out.println("   Iniciando com biblioteca vazia.");
         } else {
-            System.out.println(initialBooks.size() + " livros carregados com sucesso!");
+            System.out.println(libraryService.getTotalBooks() + " livros carregados com sucesso!");
         }
 
-        LibraryService libraryService = new LibraryService(initialBooks);
+        WriteAheadLog writeAheadLog = openWriteAheadLog(libraryService, logPath, csvPath, catalogPath);
+
         ConsoleUI consoleUI = new ConsoleUI(libraryService);
         consoleUI.start();
+
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o log de alterações: " + e.getMessage());
+            }
+        }
+    }
+
+    // Changes made in previous runs are replayed from the log, and every new change is written to it
+    private static WriteAheadLog openWriteAheadLog(LibraryService libraryService, Path logPath, Path csvPath,
+            Path catalogPath) {
+        try {
+            WriteAheadLog writeAheadLog = WriteAheadLog.open(logPath, csvPath, catalogPath);
+            int replayed = writeAheadLog.recover(libraryService);
+
+            if (replayed > 0) {
+                System.out.println(replayed + " alterações recuperadas do log.");
+            }
+
+            libraryService.setWriteAheadLog(writeAheadLog);
+            return writeAheadLog;
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir o log de alterações: " + e.getMessage());
+            System.err.println("   As alterações não serão salvas.");
+            return null;
+        }
+    }
+
+    // The service runs on the binary catalog, which is mapped rather than read: startup doesn't depend on the
+    // number of books. It is regenerated when missing or older than the CSV (edited by hand, or a crash between
+    // the two files during a compaction, which rewrites both).
+    private static LibraryService loadLibrary(Path csvPath, Path catalogPath) {
+        try {
+            if (Files.exists(csvPath) && !isCatalogUpToDate(catalogPath, csvPath)) {
+                System.out.println("Gerando catálogo binário " + catalogPath + "...");
+                MappedCatalog.convertCsv(csvPath, catalogPath);
+            }
+
+            if (Files.exists(catalogPath)) {
+                MappedCatalog catalog = MappedCatalog.open(catalogPath);
+                System.out.println("Carregando livros do catálogo " + catalogPath + "...");
+                long start = LibraryMetrics.start();
+                try {
+                    return new LibraryService(catalog);
+                } finally {
+                    LibraryMetrics.record(LibraryMetrics.Operation.LOAD, start);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir catálogo binário: " + e.getMessage());
+        }
+
+        List<Book> initialBooks = BookApiService.loadBooksFromCsv(csvPath);
+        return new LibraryService(initialBooks);
+    }
+
+    private static boolean isCatalogUpToDate(Path catalogPath, Path csvPath) {
+        try {
+            return Files.exists(catalogPath)
+                    && Files.getLastModifiedTime(catalogPath).compareTo(Files.getLastModifiedTime(csvPath)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Path withExtension(Path csvPath, String extension) {
+        String fileName = csvPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return csvPath.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + extension);
     }
 }
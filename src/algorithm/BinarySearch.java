@@ -3,11 +3,30 @@ package algorithm;
 import model.Book;
 import java.util.ArrayList;
 import java.util.List;
-import java.text.Normalizer;
 
 public class BinarySearch {
 
     public static List<Book> search(List<Book> books, String searchTitle) {
+        List<Book> results = searchExact(books, searchTitle);
+
+        if (results.isEmpty()) {
+            return searchNeighbors(books, searchTitle);
+        }
+
+        return results;
+    }
+
+    // The books around the position the title would have, for callers that already know there is no exact match
+    public static List<Book> searchNeighbors(List<Book> books, String searchTitle) {
+        if (books == null || books.isEmpty() || searchTitle == null || searchTitle.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int insertionPoint = binarySearchInsertionPoint(books, normalize(searchTitle.trim()));
+        return findNearbyBooks(books, insertionPoint, 5);
+    }
+
+    public static List<Book> searchExact(List<Book> books, String searchTitle) {
         List<Book> results = new ArrayList<>();
 
         if (books == null || books.isEmpty() || searchTitle == null || searchTitle.trim().isEmpty()) {
@@ -18,20 +37,51 @@ public class BinarySearch {
 
         int insertionPoint = binarySearchInsertionPoint(books, searchNormalized);
         boolean isExactMatch = insertionPoint < books.size() &&
-                normalize(books.get(insertionPoint).getTitle()).equals(searchNormalized);
+                books.get(insertionPoint).getTitleKey().equals(searchNormalized);
 
         if (isExactMatch) {
             return findAllWithSameTitle(books, insertionPoint, searchNormalized);
-        } else {
-            return findNearbyBooks(books, insertionPoint, 5);
         }
+
+        return results;
+    }
+
+    public static List<Book> searchByPrefix(List<Book> books, String prefix, int offset, int limit) {
+        List<Book> results = new ArrayList<>();
+
+        if (books == null || books.isEmpty() || prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        String prefixNormalized = normalize(prefix.trim());
+
+        int first = lowerBound(books, prefixNormalized);
+        int last = prefixUpperBound(books, prefixNormalized);
+        // Clamped to the range so a large offset can't overflow past Integer.MAX_VALUE
+        first += Math.min(Math.max(0, offset), last - first);
+
+        for (int i = first; i < last && results.size() < limit; i++) {
+            results.add(books.get(i));
+        }
+
+        return results;
+    }
+
+    public static int countByPrefix(List<Book> books, String prefix) {
+        if (books == null || books.isEmpty() || prefix == null || prefix.trim().isEmpty()) {
+            return 0;
+        }
+
+        String prefixNormalized = normalize(prefix.trim());
+
+        return prefixUpperBound(books, prefixNormalized) - lowerBound(books, prefixNormalized);
     }
 
     private static List<Book> findAllWithSameTitle(List<Book> books, int insertionPoint, String searchNormalized) {
         List<Book> results = new ArrayList<>();
 
         int left = insertionPoint;
-        while (left >= 0 && normalize(books.get(left).getTitle()).equals(searchNormalized)) {
+        while (left >= 0 && books.get(left).getTitleKey().equals(searchNormalized)) {
             results.add(0, books.get(left));
             left--;
         }
@@ -41,7 +91,7 @@ public class BinarySearch {
         }
 
         int right = insertionPoint + 1;
-        while (right < books.size() && normalize(books.get(right).getTitle()).equals(searchNormalized)) {
+        while (right < books.size() && books.get(right).getTitleKey().equals(searchNormalized)) {
             results.add(books.get(right));
             right++;
         }
@@ -62,15 +112,82 @@ public class BinarySearch {
         return results;
     }
 
-    private static String normalize(String text) {
-        if (text == null) {
-            return "";
+    public static int indexOf(List<Book> books, Book book) {
+        if (books == null || book == null) {
+            return -1;
         }
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
 
-        normalized = normalized.replaceAll("\\p{M}", "");
+        String titleKey = book.getTitleKey();
+
+        for (int i = lowerBound(books, titleKey); i < books.size(); i++) {
+            Book current = books.get(i);
+            if (!current.getTitleKey().equals(titleKey)) {
+                break;
+            }
+            if (current.equals(book)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
 
-        return normalized.toLowerCase();
+    public static int lowerBound(List<Book> books, String searchNormalized) {
+        int left = 0;
+        int right = books.size();
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+
+            if (books.get(middle).getTitleKey().compareTo(searchNormalized) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    public static int upperBound(List<Book> books, String searchNormalized) {
+        int left = 0;
+        int right = books.size();
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+
+            if (books.get(middle).getTitleKey().compareTo(searchNormalized) <= 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    // Titles starting with the prefix sit right after every smaller title, so the range ends at the
+    // first title that is neither smaller than the prefix nor starts with it
+    private static int prefixUpperBound(List<Book> books, String prefixNormalized) {
+        int left = 0;
+        int right = books.size();
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+            String bookTitle = books.get(middle).getTitleKey();
+
+            if (bookTitle.startsWith(prefixNormalized) || bookTitle.compareTo(prefixNormalized) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    private static String normalize(String text) {
+        return Book.normalizeKey(text);
     }
 
     private static int binarySearchInsertionPoint(List<Book> books, String searchNormalized) {
@@ -79,7 +196,7 @@ public class BinarySearch {
 
         while (left <= right) {
             int middle = left + (right - left) / 2;
-            String bookTitle = normalize(books.get(middle).getTitle());
+            String bookTitle = books.get(middle).getTitleKey();
             int comparison = bookTitle.compareTo(searchNormalized);
 
             if (comparison == 0) {
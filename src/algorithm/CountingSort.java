@@ -0,0 +1,66 @@
+package algorithm;
+
+import model.Book;
+
+public class CountingSort {
+
+    private static final int MIN_KEY_RANGE = 1 << 12;
+
+    public static boolean sortByYear(Book[] books) {
+        if (books == null || books.length <= 1) {
+            return true;
+        }
+
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+
+        for (Book book : books) {
+            Integer year = book.getYear();
+            if (year != null) {
+                minYear = Math.min(minYear, year);
+                maxYear = Math.max(maxYear, year);
+            }
+        }
+
+        if (minYear > maxYear) {
+            return true;
+        }
+
+        long range = (long) maxYear - minYear + 1;
+        if (range > Math.max(2L * books.length, MIN_KEY_RANGE)) {
+            return false;
+        }
+
+        // Books without a year get the key right after the latest year, so they stay last
+        int nullKey = (int) range;
+        int[] keys = new int[books.length];
+
+        for (int i = 0; i < books.length; i++) {
+            Integer year = books[i].getYear();
+            keys[i] = year == null ? nullKey : year - minYear;
+        }
+
+        sortByKeys(books, keys, nullKey + 1);
+        return true;
+    }
+
+    public static void sortByKeys(Book[] books, int[] keys, int keyRange) {
+        int[] positions = new int[keyRange + 1];
+
+        for (int key : keys) {
+            positions[key + 1]++;
+        }
+
+        for (int i = 0; i < keyRange; i++) {
+            positions[i + 1] += positions[i];
+        }
+
+        Book[] sorted = new Book[books.length];
+
+        for (int i = 0; i < books.length; i++) {
+            sorted[positions[keys[i]]++] = books[i];
+        }
+
+        System.arraycopy(sorted, 0, books, 0, books.length);
+    }
+}
@@ -1,10 +1,17 @@
 package algorithm;
 
 import model.Book;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class MergeSort {
 
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     public enum SortBy {
         TITLE,
         AUTHOR,
@@ -12,92 +19,240 @@ public class MergeSort {
     }
 
     public static void sortBy(List<Book> books, SortBy sortBy) {
+        sortBy(books, sortBy, false);
+    }
+
+    public static void sortBy(List<Book> books, SortBy sortBy, boolean parallel) {
         if (books == null || books.size() <= 1) {
             return;
         }
 
-        merge(books, 0, books.size() - 1, sortBy);
+        Book[] array = books.toArray(new Book[0]);
+        sortBy(array, sortBy, parallel);
+
+        ListIterator<Book> iterator = books.listIterator();
+        for (Book book : array) {
+            iterator.next();
+            iterator.set(book);
+        }
     }
 
-    public static void merge(List<Book> books, int start, int end, SortBy sortBy) {
+    public static void sortBy(Book[] books, SortBy sortBy) {
+        sortBy(books, sortBy, false);
+    }
+
+    public static void sortBy(Book[] books, SortBy sortBy, boolean parallel) {
+        if (books == null || books.length <= 1) {
+            return;
+        }
+
+        if (sortBy == SortBy.YEAR && CountingSort.sortByYear(books)) {
+            return;
+        }
+
+        Book[] aux = new Book[books.length];
+
+        if (parallel && books.length > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new ParallelMerge(books, aux, 0, books.length - 1, sortBy));
+        } else {
+            merge(books, aux, 0, books.length - 1, sortBy);
+        }
+    }
+
+    public static void merge(Book[] books, Book[] aux, int start, int end, SortBy sortBy) {
         int middle;
-        if (start < end) {
+        if (end - start < INSERTION_SORT_THRESHOLD) {
+            insertionSort(books, start, end, sortBy);
+        } else {
             middle = start + (end - start) / 2; // Avoid overflow
-            merge(books, start, middle, sortBy);
-            merge(books, middle + 1, end, sortBy);
-            intercalate(books, start, end, middle, sortBy);
+            merge(books, aux, start, middle, sortBy);
+            merge(books, aux, middle + 1, end, sortBy);
+
+            // Both halves are already in order, nothing to intercalate
+            if (compareBooks(books[middle], books[middle + 1], sortBy) <= 0) {
+                return;
+            }
+
+            intercalate(books, aux, start, end, middle, sortBy);
+        }
+    }
+
+    // Halves are sorted concurrently on disjoint ranges of the same aux buffer and intercalated
+    // exactly like the sequential version, so the result is identical and stable
+    private static class ParallelMerge extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Book[] books;
+        private final Book[] aux;
+        private final int start;
+        private final int end;
+        private final SortBy sortBy;
+
+        ParallelMerge(Book[] books, Book[] aux, int start, int end, SortBy sortBy) {
+            this.books = books;
+            this.aux = aux;
+            this.start = start;
+            this.end = end;
+            this.sortBy = sortBy;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < PARALLEL_THRESHOLD) {
+                merge(books, aux, start, end, sortBy);
+                return;
+            }
+
+            int middle = start + (end - start) / 2;
+            invokeAll(new ParallelMerge(books, aux, start, middle, sortBy),
+                    new ParallelMerge(books, aux, middle + 1, end, sortBy));
+
+            if (compareBooks(books[middle], books[middle + 1], sortBy) > 0) {
+                intercalate(books, aux, start, end, middle, sortBy);
+            }
         }
     }
 
-    public static void intercalate(List<Book> books, int start, int end, int middle, SortBy sortBy) {
+    public static void intercalate(Book[] books, Book[] aux, int start, int end, int middle, SortBy sortBy) {
         int freePos, startVector1, startVector2, i;
-        Book aux[] = new Book[books.size()];
 
         startVector1 = start;
         startVector2 = middle + 1;
         freePos = start;
 
         while (startVector1 <= middle && startVector2 <= end) {
-            if (compareBooks(books.get(startVector1), books.get(startVector2), sortBy) <= 0) {
-                aux[freePos] = books.get(startVector1);
+            if (compareBooks(books[startVector1], books[startVector2], sortBy) <= 0) {
+                aux[freePos] = books[startVector1];
                 startVector1 = startVector1 + 1;
             } else {
-                aux[freePos] = books.get(startVector2);
+                aux[freePos] = books[startVector2];
                 startVector2 = startVector2 + 1;
             }
             freePos = freePos + 1;
         }
 
         for (i = startVector1; i <= middle; i++) {
-            aux[freePos] = books.get(i);
+            aux[freePos] = books[i];
             freePos = freePos + 1;
         }
 
         for (i = startVector2; i <= end; i++) {
-            aux[freePos] = books.get(i);
+            aux[freePos] = books[i];
             freePos = freePos + 1;
         }
 
         for (i = start; i <= end; i++) {
-            books.set(i, aux[i]);
+            books[i] = aux[i];
+        }
+    }
+
+    public static List<Book> mergeSorted(List<Book> first, List<Book> second, SortBy sortBy) {
+        List<Book> merged = new ArrayList<>(first.size() + second.size());
+        int startVector1 = 0;
+        int startVector2 = 0;
+
+        while (startVector1 < first.size() && startVector2 < second.size()) {
+            if (compareBooks(first.get(startVector1), second.get(startVector2), sortBy) <= 0) {
+                merged.add(first.get(startVector1));
+                startVector1++;
+            } else {
+                merged.add(second.get(startVector2));
+                startVector2++;
+            }
+        }
+
+        while (startVector1 < first.size()) {
+            merged.add(first.get(startVector1));
+            startVector1++;
+        }
+
+        while (startVector2 < second.size()) {
+            merged.add(second.get(startVector2));
+            startVector2++;
+        }
+
+        return merged;
+    }
+
+    // Sorts positions into an array of keys, e.g. ids by name, without reordering the keys themselves
+    public static void sortIndexes(int[] indexes, String[] keys) {
+        if (indexes == null || indexes.length <= 1) {
+            return;
+        }
+
+        sortIndexes(indexes, new int[indexes.length], keys, 0, indexes.length - 1);
+    }
+
+    private static void sortIndexes(int[] indexes, int[] aux, String[] keys, int start, int end) {
+        if (end - start < INSERTION_SORT_THRESHOLD) {
+            for (int i = start + 1; i <= end; i++) {
+                int current = indexes[i];
+                int j = i - 1;
+
+                while (j >= start && keys[indexes[j]].compareTo(keys[current]) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+
+                indexes[j + 1] = current;
+            }
+            return;
+        }
+
+        int middle = start + (end - start) / 2;
+        sortIndexes(indexes, aux, keys, start, middle);
+        sortIndexes(indexes, aux, keys, middle + 1, end);
+
+        int startVector1 = start;
+        int startVector2 = middle + 1;
+        int freePos = start;
+
+        while (startVector1 <= middle && startVector2 <= end) {
+            if (keys[indexes[startVector1]].compareTo(keys[indexes[startVector2]]) <= 0) {
+                aux[freePos++] = indexes[startVector1++];
+            } else {
+                aux[freePos++] = indexes[startVector2++];
+            }
+        }
+
+        while (startVector1 <= middle) {
+            aux[freePos++] = indexes[startVector1++];
+        }
+
+        while (startVector2 <= end) {
+            aux[freePos++] = indexes[startVector2++];
+        }
+
+        System.arraycopy(aux, start, indexes, start, end - start + 1);
+    }
+
+    private static void insertionSort(Book[] books, int start, int end, SortBy sortBy) {
+        for (int i = start + 1; i <= end; i++) {
+            Book current = books[i];
+            int j = i - 1;
+
+            while (j >= start && compareBooks(books[j], current, sortBy) > 0) {
+                books[j + 1] = books[j];
+                j--;
+            }
+
+            books[j + 1] = current;
         }
     }
 
     private static int compareBooks(Book book1, Book book2, SortBy sortBy) {
         switch (sortBy) {
             case TITLE:
-                return compareTitles(book1.getTitle(), book2.getTitle());
+                return book1.getTitleKey().compareTo(book2.getTitleKey());
             case AUTHOR:
-                return compareAuthors(book1.getAuthor(), book2.getAuthor());
+                return book1.getAuthorKey().compareTo(book2.getAuthorKey());
             case YEAR:
                 return compareYears(book1.getYear(), book2.getYear());
             default:
-                return compareTitles(book1.getTitle(), book2.getTitle());
+                return book1.getTitleKey().compareTo(book2.getTitleKey());
         }
     }
 
-    private static int compareTitles(String title1, String title2) {
-        if (title1 == null && title2 == null)
-            return 0;
-        if (title1 == null)
-            return -1;
-        if (title2 == null)
-            return 1;
-
-        return title1.toLowerCase().compareTo(title2.toLowerCase());
-    }
-
-    private static int compareAuthors(String author1, String author2) {
-        if (author1 == null && author2 == null)
-            return 0;
-        if (author1 == null)
-            return -1;
-        if (author2 == null)
-            return 1;
-
-        return author1.toLowerCase().compareTo(author2.toLowerCase());
-    }
-
     private static int compareYears(Integer year1, Integer year2) {
         if (year1 == null && year2 == null)
             return 0;
@@ -0,0 +1,184 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+// Minimal JMH-style harness: a timed warm-up, then a timed measurement where every call is timed individually.
+// Reports throughput, latency percentiles, bytes allocated per call (HotSpot thread allocation counter) and the
+// collections that happened during the measurement.
+public class BenchmarkRunner {
+
+    public static class Result {
+        final String name;
+        final int catalogSize;
+        final long operations;
+        final double operationsPerSecond;
+        final long[] percentiles;
+        final long bytesPerOperation;
+        final long gcCount;
+        final long gcMillis;
+
+        Result(String name, int catalogSize, long operations, double operationsPerSecond, long[] percentiles,
+                long bytesPerOperation, long gcCount, long gcMillis) {
+            this.name = name;
+            this.catalogSize = catalogSize;
+            this.operations = operations;
+            this.operationsPerSecond = operationsPerSecond;
+            this.percentiles = percentiles;
+            this.bytesPerOperation = bytesPerOperation;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    private static final double[] PERCENTILES = { 0.50, 0.90, 0.99, 0.999 };
+    private static final int MINIMUM_OPERATIONS = 5;
+
+    private final long warmupNanos;
+    private final long measurementNanos;
+    private int sink;
+
+    public BenchmarkRunner(long warmupMillis, long measurementMillis) {
+        this.warmupNanos = warmupMillis * 1_000_000;
+        this.measurementNanos = measurementMillis * 1_000_000;
+    }
+
+    // The operation receives the call number and returns something derived from its work, which is folded into
+    // a field so the JIT can't discard the call as dead code
+    public Result run(String name, int catalogSize, IntFunction<Object> operation) {
+        int call = 0;
+        long warmupEnd = System.nanoTime() + warmupNanos;
+
+        do {
+            consume(operation.apply(call++));
+        } while (System.nanoTime() < warmupEnd || call < MINIMUM_OPERATIONS);
+
+        System.gc();
+
+        long[] latencies = new long[1024];
+        int count = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long end = start + measurementNanos;
+        long now = start;
+
+        while (now < end || count < MINIMUM_OPERATIONS) {
+            long before = now;
+            consume(operation.apply(call++));
+            now = System.nanoTime();
+
+            if (count == latencies.length) {
+                long[] grown = new long[count * 2];
+                System.arraycopy(latencies, 0, grown, 0, count);
+                latencies = grown;
+            }
+            latencies[count++] = now - before;
+        }
+
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        double seconds = (now - start) / 1e9;
+
+        Result result = new Result(name, catalogSize, count, count / seconds, percentiles(latencies, count),
+                allocated < 0 ? -1 : allocated / count, gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+        print(result);
+        return result;
+    }
+
+    public static void printHeader() {
+        System.out.println(String.format(Locale.ROOT, "%-28s %10s %12s %12s %12s %12s %12s %12s %8s",
+                "benchmark", "tamanho", "ops/s", "p50", "p90", "p99", "p99.9", "bytes/op", "gc"));
+    }
+
+    private static void print(Result result) {
+        System.out.println(String.format(Locale.ROOT, "%-28s %10d %12.1f %12s %12s %12s %12s %12s %8s",
+                result.name, result.catalogSize, result.operationsPerSecond,
+                formatNanos(result.percentiles[0]), formatNanos(result.percentiles[1]),
+                formatNanos(result.percentiles[2]), formatNanos(result.percentiles[3]),
+                result.bytesPerOperation < 0 ? "n/d" : Long.toString(result.bytesPerOperation),
+                result.gcCount + "/" + result.gcMillis + "ms"));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + " ns";
+        } else if (nanos < 10_000_000) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        } else if (nanos < 10_000_000_000L) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+    }
+
+    private static long[] percentiles(long[] latencies, int count) {
+        long[] sorted = new long[count];
+        System.arraycopy(latencies, 0, sorted, 0, count);
+        sortLongs(sorted, new long[count], 0, count - 1);
+
+        long[] values = new long[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int index = (int) Math.ceil(PERCENTILES[i] * count) - 1;
+            values[i] = sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+        return values;
+    }
+
+    private static void sortLongs(long[] values, long[] aux, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+
+        int middle = start + (end - start) / 2;
+        sortLongs(values, aux, start, middle);
+        sortLongs(values, aux, middle + 1, end);
+
+        int left = start;
+        int right = middle + 1;
+        int freePos = start;
+
+        while (left <= middle && right <= end) {
+            aux[freePos++] = values[left] <= values[right] ? values[left++] : values[right++];
+        }
+        while (left <= middle) {
+            aux[freePos++] = values[left++];
+        }
+        while (right <= end) {
+            aux[freePos++] = values[right++];
+        }
+
+        System.arraycopy(aux, start, values, start, end - start + 1);
+    }
+
+    private void consume(Object value) {
+        sink ^= value == null ? 0 : System.identityHashCode(value);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
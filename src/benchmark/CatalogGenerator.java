@@ -0,0 +1,331 @@
+package benchmark;
+
+import model.Book;
+import service.IsbnAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic catalogs: the same seed always produces the same books, in the same order.
+// Authors follow a Zipf distribution (a few very prolific authors, a long tail), some titles repeat earlier ones,
+// many carry accents, some contain commas (quoted in the CSV) and some books have no year.
+public class CatalogGenerator {
+
+    public static final int DEFAULT_AUTHOR_COUNT = 20_000;
+
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final double DUPLICATE_TITLE_RATE = 0.05;
+    private static final double MISSING_YEAR_RATE = 0.08;
+    private static final double COMMA_RATE = 0.04;
+    private static final int MAX_YEAR = 2024;
+    private static final int MIN_YEAR = 1600;
+    private static final double MEAN_BOOK_AGE = 30.0;
+    private static final long ISBN_BLOCK = 1_000_000_000L;
+    private static final long ISBN_SCRAMBLER = 387_420_489L;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String CSV_HEADER = "titulo,autor,isbn,ano\n";
+
+    private static final String[] WORDS = {
+            "Memórias", "Coração", "Sombra", "Noite", "Jardim", "Cidade", "Mar", "Sertão", "Estrela", "Caminho",
+            "Segredo", "Ilha", "Rio", "Montanha", "Vento", "Silêncio", "Canção", "Espelho", "Labirinto", "Ponte",
+            "História", "Crônica", "Lição", "Ação", "Razão", "Paixão", "Tempo", "Fogo", "Água", "Pedra",
+            "São", "Açúcar", "Árvore", "Ópera", "Órfão", "Invenção", "Solidão", "Viagem", "Herança", "Promessa",
+            "do", "da", "de", "e", "o", "a", "dos", "das", "no", "na",
+            "The", "of", "and", "Last", "First", "Dark", "Lost", "Hidden", "Secret", "Silent",
+            "House", "Garden", "River", "Night", "Shadow", "Kingdom", "Empire", "Storm", "Winter", "Summer",
+            "Glass", "Iron", "Golden", "Broken", "Forgotten", "Endless", "Little", "Great", "Wild", "Burning",
+            "Murder", "Mystery", "Journey", "Letters", "Song", "Dream", "Light", "Fire", "Stone", "Sea",
+            "Café", "Crème", "Naïve", "Déjà", "Señor", "Niño", "Über", "Fräulein", "Château", "Façade",
+            "Amor", "Guerra", "Paz", "Reino", "Trono", "Espada", "Dragão", "Bruxa", "Lobo", "Corvo",
+            "Volume", "Livro", "Parte", "Saga", "Ciclo", "Retorno", "Queda", "Ascensão", "Fim", "Início",
+            "Quiet", "Bright", "Distant", "Hollow", "Crimson", "Silver", "Northern", "Southern"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "Ana", "João", "Maria", "José", "Antônio", "Francisca", "Luís", "Beatriz", "Sérgio", "Inês",
+            "Clarice", "Jorge", "Cecília", "Graciliano", "Raquel", "Érico", "Lygia", "Mário", "Conceição", "Fábio",
+            "James", "Mary", "Robert", "Patricia", "Agatha", "Stephen", "George", "Virginia", "Ernest", "Jane",
+            "Émile", "Gabriel", "Isabel", "Haruki", "Chimamanda", "Fiódor", "Liev", "Umberto", "Italo", "Günter"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira", "Alves", "Pereira", "Lima", "Gomes",
+            "Ribeiro", "Carvalho", "Araújo", "Gonçalves", "Conceição", "Magalhães", "Brandão", "Simões", "Assunção",
+            "Lispector", "Amado", "Meireles", "Ramos", "Queiroz", "Veríssimo", "Telles", "Andrade", "Evaristo",
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Wilson", "Taylor", "Anderson",
+            "Christie", "King", "Martin", "Woolf", "Hemingway", "Austen", "Zola", "García", "Márquez", "Allende",
+            "Murakami", "Adichie", "Dostoiévski", "Tolstói", "Eco", "Calvino", "Grass", "Müller", "Böll", "Żeromski"
+    };
+
+    private static final byte[][] WORD_BYTES = encodeAll(WORDS);
+
+    private final long seed;
+    private final SplittableRandom random;
+    private final String[] authors;
+    private final byte[][] authorBytes;
+    private final double[] authorProbability;
+    private final int[] authorAlias;
+    private long index;
+
+    private final byte[] title = new byte[256];
+    private int titleLength;
+    private boolean titleHasComma;
+    private int authorId;
+    private long isbn;
+    private int year;
+
+    public CatalogGenerator(long seed) {
+        this(seed, DEFAULT_AUTHOR_COUNT);
+    }
+
+    public CatalogGenerator(long seed, int authorCount) {
+        if (authorCount <= 0) {
+            throw new IllegalArgumentException("Número de autores deve ser positivo");
+        }
+
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.authors = new String[authorCount];
+        this.authorBytes = new byte[authorCount][];
+        this.authorProbability = new double[authorCount];
+        this.authorAlias = new int[authorCount];
+
+        double[] weights = new double[authorCount];
+        double total = 0;
+        for (int rank = 0; rank < authorCount; rank++) {
+            authors[rank] = authorName(rank);
+            authorBytes[rank] = authors[rank].getBytes(StandardCharsets.UTF_8);
+            weights[rank] = 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            total += weights[rank];
+        }
+
+        buildAliasTable(weights, total);
+    }
+
+    public Book next() {
+        nextRecord();
+        return new Book(new String(title, 0, titleLength, StandardCharsets.UTF_8), authors[authorId],
+                Long.toString(isbn), year == 0 ? null : year);
+    }
+
+    public List<Book> generate(int size) {
+        List<Book> books = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            books.add(next());
+        }
+
+        return books;
+    }
+
+    // Encodes the records straight into a byte buffer, without creating Book or String objects; returns the
+    // number of bytes written
+    public long writeCsv(Path path, long size) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length = 0;
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] header = CSV_HEADER.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(header, 0, buffer, 0, header.length);
+            length = header.length;
+
+            for (long i = 0; i < size; i++) {
+                nextRecord();
+                byte[] author = authorBytes[authorId];
+
+                // Title (quoted with a comma) + author + 13-digit ISBN + 4-digit year + separators
+                if (length + titleLength + author.length + 32 > buffer.length) {
+                    written += flush(channel, buffer, length);
+                    length = 0;
+                }
+
+                if (titleHasComma) {
+                    buffer[length++] = '"';
+                }
+                System.arraycopy(title, 0, buffer, length, titleLength);
+                length += titleLength;
+                if (titleHasComma) {
+                    buffer[length++] = '"';
+                }
+                buffer[length++] = ',';
+
+                System.arraycopy(author, 0, buffer, length, author.length);
+                length += author.length;
+                buffer[length++] = ',';
+
+                length = writeDigits(buffer, length, isbn, 13);
+                buffer[length++] = ',';
+
+                if (year != 0) {
+                    length = writeDigits(buffer, length, year, 4);
+                }
+                buffer[length++] = '\n';
+            }
+
+            written += flush(channel, buffer, length);
+        }
+
+        return written;
+    }
+
+    private void nextRecord() {
+        long bookIndex = index++;
+
+        long titleId = bookIndex > 0 && random.nextDouble() < DUPLICATE_TITLE_RATE
+                ? random.nextLong(bookIndex)
+                : bookIndex;
+        buildTitle(titleId);
+
+        int column = random.nextInt(authorAlias.length);
+        authorId = random.nextDouble() < authorProbability[column] ? column : authorAlias[column];
+        isbn = isbnFor(bookIndex);
+
+        if (random.nextDouble() < MISSING_YEAR_RATE) {
+            year = 0;
+        } else {
+            double age = -MEAN_BOOK_AGE * Math.log(1.0 - random.nextDouble());
+            year = Math.max(MIN_YEAR, MAX_YEAR - (int) age);
+        }
+    }
+
+    // The words come from a hash of the title id, so a repeated id yields exactly the same title
+    private void buildTitle(long titleId) {
+        long hash = mix(seed ^ mix(titleId + 0x9E3779B97F4A7C15L));
+        int wordCount = 2 + (int) (hash & 3);
+        int commaBefore = (hash >>> 2 & 0xFF) < COMMA_RATE * 256 ? wordCount - 1 : -1;
+        hash = mix(hash);
+
+        titleLength = 0;
+        titleHasComma = commaBefore > 0;
+
+        for (int word = 0; word < wordCount; word++) {
+            byte[] bytes = WORD_BYTES[(int) ((hash >>> (word * 12)) & 0xFFF) % WORD_BYTES.length];
+
+            if (word > 0) {
+                if (word == commaBefore) {
+                    title[titleLength++] = ',';
+                }
+                title[titleLength++] = ' ';
+            }
+
+            System.arraycopy(bytes, 0, title, titleLength, bytes.length);
+            titleLength += bytes.length;
+        }
+    }
+
+    // Walker's alias method: every column holds one author with probability p and an alias with 1 - p, so an
+    // author is drawn from the Zipf distribution in O(1) instead of a search over the cumulative weights
+    private void buildAliasTable(double[] weights, double total) {
+        int size = weights.length;
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            authorProbability[less] = scaled[less];
+            authorAlias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        while (largeCount > 0) {
+            authorProbability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            authorProbability[small[--smallCount]] = 1.0;
+        }
+    }
+
+    // 978/979 prefix + 9-digit sequence + check digit. Multiplying by a number coprime with 10^9 permutes the
+    // sequence, so ISBNs look scattered but never repeat.
+    private static long isbnFor(long bookIndex) {
+        long prefix = bookIndex < ISBN_BLOCK ? 978 : 979;
+
+        if (bookIndex >= 2 * ISBN_BLOCK) {
+            throw new IllegalStateException("Limite de ISBNs gerados atingido");
+        }
+
+        long sequence = (bookIndex % ISBN_BLOCK) * ISBN_SCRAMBLER % ISBN_BLOCK;
+        long withoutCheck = prefix * ISBN_BLOCK + sequence;
+        return withoutCheck * 10 + IsbnAllocator.checkDigit(withoutCheck);
+    }
+
+    // Mixed-radix digits of the rank pick the first, last and middle names, so two ranks never share a name;
+    // once every combination is used a number is appended. The seed only rotates the digits.
+    private String authorName(int rank) {
+        long hash = mix(seed ^ 0x632BE59BD9B4E019L);
+        String first = FIRST_NAMES[(int) ((rank + (hash & 0xFFFF)) % FIRST_NAMES.length)];
+        int rest = rank / FIRST_NAMES.length;
+        String last = LAST_NAMES[(int) ((rest + (hash >>> 16 & 0xFFFF)) % LAST_NAMES.length)];
+        rest /= LAST_NAMES.length;
+
+        if (rest == 0) {
+            return first + " " + last;
+        }
+
+        rest--;
+        String middle = LAST_NAMES[(int) ((rest + (hash >>> 32 & 0xFFFF)) % LAST_NAMES.length)];
+        rest /= LAST_NAMES.length;
+
+        String name = first + " " + middle + " " + last;
+        return rest == 0 ? name : name + " " + (rest + 1);
+    }
+
+    private static int writeDigits(byte[] buffer, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    private static int flush(FileChannel channel, byte[] buffer, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        return length;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static byte[][] encodeAll(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+}
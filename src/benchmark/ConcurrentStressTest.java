@@ -0,0 +1,218 @@
+package benchmark;
+
+import algorithm.MergeSort;
+import model.Book;
+import service.ConcurrentLibraryService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Usage: java -cp bin benchmark.ConcurrentStressTest [writers] [readers] [operations per writer] [catalog size]
+// Writers add, update and remove their own books while readers keep checking every snapshot they see. At the
+// end, each writer's final view of its books must match the catalog exactly (no lost updates) and the listings
+// must still be sorted. Exits with status 1 on the first inconsistency found.
+public class ConcurrentStressTest {
+
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int catalogSize = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        List<Book> catalog = new CatalogGenerator(SEED).generate(catalogSize);
+        ConcurrentLibraryService library = new ConcurrentLibraryService(catalog);
+        int initialBooks = library.getTotalBooks();
+
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshotsChecked = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+
+        System.out.println("Estresse: " + writers + " escritores, " + readers + " leitores, " + operations
+                + " operações por escritor, " + initialBooks + " livros iniciais");
+        long start = System.nanoTime();
+
+        List<Future<Map<String, String>>> writerResults = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int id = writer;
+            writerResults.add(executor.submit(() -> write(library, id, operations, failures)));
+        }
+
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int reader = 0; reader < readers; reader++) {
+            readerResults.add(executor.submit(() -> {
+                while (writing.get() && failures.isEmpty()) {
+                    checkSnapshot(library, failures);
+                    snapshotsChecked.incrementAndGet();
+                }
+            }));
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        for (Future<Map<String, String>> result : writerResults) {
+            expected.putAll(result.get());
+        }
+        writing.set(false);
+        for (Future<?> result : readerResults) {
+            result.get();
+        }
+        executor.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        checkSnapshot(library, failures);
+        checkFinalState(library, initialBooks, expected, failures);
+
+        System.out.println(String.format("%.1f s, %d leituras verificadas, %d livros no final", seconds,
+                snapshotsChecked.get(), library.getTotalBooks()));
+
+        if (!failures.isEmpty()) {
+            for (String failure : failures.subList(0, Math.min(10, failures.size()))) {
+                System.out.println("FALHA: " + failure);
+            }
+            System.exit(1);
+        }
+
+        System.out.println("OK");
+    }
+
+    // Returns the state this writer expects for each book it touched: "title|year", or null once removed
+    private static Map<String, String> write(ConcurrentLibraryService library, int id, int operations,
+            List<String> failures) {
+        Random random = new Random(SEED + id);
+        Map<String, String> expected = new HashMap<>();
+        List<String> live = new ArrayList<>();
+
+        for (int i = 0; i < operations && failures.isEmpty(); i++) {
+            int operation = live.isEmpty() ? 0 : random.nextInt(4);
+            String title = "Estresse " + id + " " + random.nextInt(200);
+
+            if (operation == 0) {
+                Integer year = random.nextBoolean() ? null : 1900 + random.nextInt(120);
+                String isbn = library.addBook(title, "Escritor " + id, year);
+                live.add(isbn);
+                expected.put(isbn, title + "|" + year);
+            } else if (operation == 1) {
+                String isbn = live.remove(random.nextInt(live.size()));
+                if (!library.removeBook(isbn)) {
+                    failures.add("remoção de " + isbn + " não encontrou o livro");
+                }
+                expected.put(isbn, null);
+            } else if (operation == 2) {
+                String isbn = live.get(random.nextInt(live.size()));
+                int year = 1900 + random.nextInt(120);
+                if (!library.updateBook(isbn, title, null, year)) {
+                    failures.add("atualização de " + isbn + " não encontrou o livro");
+                }
+                expected.put(isbn, title + "|" + year);
+            } else {
+                List<Book> batch = new ArrayList<>();
+                for (int k = 0; k < 3; k++) {
+                    batch.add(new Book(title + " lote " + k, "Escritor " + id, null, null));
+                }
+                List<String> isbns = library.addBooks(batch);
+                for (int k = 0; k < isbns.size(); k++) {
+                    live.add(isbns.get(k));
+                    expected.put(isbns.get(k), batch.get(k).getTitle() + "|null");
+                }
+            }
+        }
+
+        return expected;
+    }
+
+    private static void checkSnapshot(ConcurrentLibraryService library, List<String> failures) {
+        List<Book> byTitle = library.listAllBooksSortedBy(MergeSort.SortBy.TITLE);
+        Set<String> isbns = new HashSet<>(byTitle.size() * 2);
+
+        for (int i = 0; i < byTitle.size(); i++) {
+            if (i > 0 && byTitle.get(i - 1).getTitleKey().compareTo(byTitle.get(i).getTitleKey()) > 0) {
+                failures.add("listagem por título fora de ordem na posição " + i);
+                return;
+            }
+            if (!isbns.add(byTitle.get(i).getIsbn())) {
+                failures.add("ISBN repetido na listagem: " + byTitle.get(i).getIsbn());
+                return;
+            }
+        }
+
+        List<Book> byAuthor = library.listAllBooksSortedBy(MergeSort.SortBy.AUTHOR);
+        for (int i = 1; i < byAuthor.size(); i++) {
+            if (byAuthor.get(i - 1).getAuthorKey().compareTo(byAuthor.get(i).getAuthorKey()) > 0) {
+                failures.add("listagem por autor fora de ordem na posição " + i);
+                return;
+            }
+        }
+
+        // The sample may be renamed before the search runs, and then the approximate results are expected;
+        // an exact result, though, must never mix in other titles
+        if (!byTitle.isEmpty()) {
+            Book sample = byTitle.get(byTitle.size() / 2);
+            List<Book> results = library.searchBooksByTitle(sample.getTitle());
+            boolean exact = false;
+            boolean mixed = false;
+
+            for (Book found : results) {
+                if (found.getTitleKey().equals(sample.getTitleKey())) {
+                    exact = true;
+                } else {
+                    mixed = true;
+                }
+            }
+
+            if (exact && mixed) {
+                failures.add("busca exata por \"" + sample.getTitle() + "\" devolveu outros títulos");
+            }
+        }
+    }
+
+    private static void checkFinalState(ConcurrentLibraryService library, int initialBooks,
+            Map<String, String> expected, List<String> failures) {
+        int liveBooks = 0;
+
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            Book book = library.findBookByIsbn(entry.getKey());
+
+            if (entry.getValue() == null) {
+                if (book != null) {
+                    failures.add("livro removido ainda existe: " + entry.getKey());
+                }
+                continue;
+            }
+
+            liveBooks++;
+
+            if (book == null) {
+                failures.add("alteração perdida: livro " + entry.getKey() + " não existe");
+            } else if (!(book.getTitle() + "|" + book.getYear()).equals(entry.getValue())) {
+                failures.add("alteração perdida: livro " + entry.getKey() + " está como " + book.getTitle() + "|"
+                        + book.getYear() + ", esperado " + entry.getValue());
+            }
+        }
+
+        if (library.getTotalBooks() != initialBooks + liveBooks) {
+            failures.add("total de livros " + library.getTotalBooks() + ", esperado " + (initialBooks + liveBooks));
+        }
+
+        int counted = 0;
+        for (int count : library.getBooksPerAuthor().values()) {
+            counted += count;
+        }
+        if (counted != library.getTotalBooks()) {
+            failures.add("estatísticas por autor somam " + counted + ", esperado " + library.getTotalBooks());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+public class GenerateCatalog {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: java -cp bin benchmark.GenerateCatalog <quantidade> [arquivo.csv] [semente] [autores]");
+            System.exit(1);
+        }
+
+        try {
+            long size = Long.parseLong(args[0]);
+            Path path = Paths.get(args.length > 1 ? args[1] : "catalog-" + size + ".csv");
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+            int authors = args.length > 3 ? Integer.parseInt(args[3]) : CatalogGenerator.DEFAULT_AUTHOR_COUNT;
+
+            long start = System.nanoTime();
+            long bytes = new CatalogGenerator(seed, authors).writeCsv(path, size);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format(Locale.ROOT, "%d livros gravados em %s (%.1f MB em %.2f s, %.0f MB/s).",
+                    size, path, bytes / 1e6, seconds, bytes / 1e6 / seconds));
+        } catch (NumberFormatException e) {
+            System.err.println("Número inválido: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar catálogo: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
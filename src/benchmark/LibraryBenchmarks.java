@@ -0,0 +1,114 @@
+package benchmark;
+
+import algorithm.BinarySearch;
+import algorithm.MergeSort;
+import model.Book;
+import service.BookApiService;
+import service.LibraryService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Usage: java -cp bin benchmark.LibraryBenchmarks [sizes, e.g. 1000,100000] [filter on the benchmark name]
+public class LibraryBenchmarks {
+
+    private static final String DEFAULT_SIZES = "1000,10000,100000,1000000";
+    private static final long WARMUP_MILLIS = Long.getLong("benchmark.warmup", 1000);
+    private static final long MEASUREMENT_MILLIS = Long.getLong("benchmark.time", 3000);
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws IOException {
+        String[] sizes = (args.length > 0 ? args[0] : DEFAULT_SIZES).split(",");
+        String filter = args.length > 1 ? args[1] : "";
+
+        BenchmarkRunner runner = new BenchmarkRunner(WARMUP_MILLIS, MEASUREMENT_MILLIS);
+
+        BenchmarkRunner.printHeader();
+
+        for (String size : sizes) {
+            int catalogSize = Integer.parseInt(size.trim());
+            List<Book> catalog = new CatalogGenerator(SEED).generate(catalogSize);
+            run(runner, filter, catalog);
+        }
+    }
+
+    private static void run(BenchmarkRunner runner, String filter, List<Book> catalog) throws IOException {
+        int size = catalog.size();
+        Book[] shuffled = catalog.toArray(new Book[0]);
+        String[] isbns = new String[size];
+        String[] titles = new String[size];
+
+        Random random = new Random(SEED);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Book swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        for (int i = 0; i < size; i++) {
+            isbns[i] = shuffled[i].getIsbn();
+            titles[i] = shuffled[i].getTitle();
+        }
+
+        // Each sort call includes copying the unsorted array, since sorting it in place would leave nothing to sort
+        for (MergeSort.SortBy sortBy : MergeSort.SortBy.values()) {
+            String name = "mergeSort.sortBy(" + sortBy + ")";
+            if (matches(filter, name)) {
+                runner.run(name, size, call -> {
+                    Book[] books = shuffled.clone();
+                    MergeSort.sortBy(books, sortBy);
+                    return books[0];
+                });
+            }
+        }
+
+        List<Book> sortedBooks = new ArrayList<>(catalog);
+        MergeSort.sortBy(sortedBooks, MergeSort.SortBy.TITLE);
+
+        if (matches(filter, "binarySearch.search")) {
+            runner.run("binarySearch.search", size, call -> BinarySearch.search(sortedBooks, titles[call % size]));
+        }
+
+        LibraryService library = new LibraryService(catalog);
+
+        if (matches(filter, "library.findBookByIsbn")) {
+            runner.run("library.findBookByIsbn", size, call -> library.findBookByIsbn(isbns[call % size]));
+        }
+
+        if (matches(filter, "library.getStatistics")) {
+            runner.run("library.getStatistics", size, call -> library.getStatistics());
+        }
+
+        // The catalog grows by one book per call during this benchmark
+        if (matches(filter, "library.addBook")) {
+            runner.run("library.addBook", size, call -> library.addBook(titles[call % size] + " " + call, "Autor"));
+        }
+
+        if (matches(filter, "bookApi.loadBooksFromCsv")) {
+            Path csv = Files.createTempFile("benchmark-books", ".csv");
+
+            try {
+                BookApiService.writeBooksToCsv(catalog, csv);
+                runner.run("bookApi.loadBooksFromCsv", size, call -> {
+                    List<Book> books = new ArrayList<>();
+                    try {
+                        BookApiService.forEachBookInCsv(csv, books::add);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Erro ao ler arquivo CSV: " + e.getMessage(), e);
+                    }
+                    return books;
+                });
+            } finally {
+                Files.deleteIfExists(csv);
+            }
+        }
+    }
+
+    private static boolean matches(String filter, String name) {
+        return filter.isEmpty() || name.toLowerCase().contains(filter.toLowerCase());
+    }
+}
@@ -1,12 +1,15 @@
 package model;
 
+import java.text.Normalizer;
 import java.util.Objects;
 
 public class Book {
-    private String title;
-    private String author;
-    private String isbn;
-    private Integer year;
+    private final String title;
+    private final String author;
+    private final String isbn;
+    private final Integer year;
+    private String titleKey;
+    private String authorKey;
 
     public Book(String title, String author, String isbn) {
         this.title = title;
@@ -38,20 +41,58 @@ public class Book {
         return year;
     }
 
-    public void setTitle(String title) {
-        this.title = title;
+    public String getTitleKey() {
+        String key = titleKey;
+        if (key == null) {
+            key = normalizeKey(title);
+            titleKey = key;
+        }
+        return key;
     }
 
-    public void setAuthor(String author) {
-        this.author = author;
+    public String getAuthorKey() {
+        String key = authorKey;
+        if (key == null) {
+            key = normalizeKey(author);
+            authorKey = key;
+        }
+        return key;
     }
 
-    public void setIsbn(String isbn) {
-        this.isbn = isbn;
-    }
+    public static String normalizeKey(String text) {
+        if (text == null) {
+            return "";
+        }
 
-    public void setYear(Integer year) {
-        this.year = year;
+        boolean ascii = true;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+
+        if (ascii) {
+            return text.toLowerCase();
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); ) {
+            int codePoint = decomposed.codePointAt(i);
+            int type = Character.getType(codePoint);
+
+            if (type != Character.NON_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK
+                    && type != Character.COMBINING_SPACING_MARK) {
+                stripped.appendCodePoint(codePoint);
+            }
+
+            i += Character.charCount(codePoint);
+        }
+
+        return stripped.toString().toLowerCase();
     }
 
     @Override
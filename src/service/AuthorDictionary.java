@@ -0,0 +1,170 @@
+package service;
+
+import algorithm.MergeSort;
+import model.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gives every distinct author a dense int id and one shared String instance
+class AuthorDictionary {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private volatile int[] ranks;
+    private int rankCount;
+
+    // Lookup by the raw UTF-8 bytes of the name, so repeated authors in a file don't allocate a String
+    private int[] byteSlots = new int[MINIMUM_CAPACITY];
+    private byte[][] encodedNames = new byte[MINIMUM_CAPACITY][];
+    private int[] encodedHashes = new int[MINIMUM_CAPACITY];
+    private int[] encodedIds = new int[MINIMUM_CAPACITY];
+    private int encodedCount;
+
+    int idOf(String author) {
+        Integer id = ids.get(author);
+
+        if (id == null) {
+            id = names.size();
+            ids.put(author, id);
+            names.add(author);
+            ranks = null;
+        }
+
+        return id;
+    }
+
+    String intern(String author) {
+        return names.get(idOf(author));
+    }
+
+    String intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = byteSlots.length - 1;
+        int slot = hash & mask;
+
+        while (byteSlots[slot] != 0) {
+            int entry = byteSlots[slot] - 1;
+            if (encodedHashes[entry] == hash && sameBytes(encodedNames[entry], bytes, offset, length)) {
+                return names.get(encodedIds[entry]);
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] encoded = new byte[length];
+        System.arraycopy(bytes, offset, encoded, 0, length);
+        int id = idOf(new String(encoded, StandardCharsets.UTF_8));
+
+        if (encodedCount == encodedNames.length) {
+            byte[][] grownNames = new byte[encodedCount * 2][];
+            int[] grownHashes = new int[encodedCount * 2];
+            int[] grownIds = new int[encodedCount * 2];
+            System.arraycopy(encodedNames, 0, grownNames, 0, encodedCount);
+            System.arraycopy(encodedHashes, 0, grownHashes, 0, encodedCount);
+            System.arraycopy(encodedIds, 0, grownIds, 0, encodedCount);
+            encodedNames = grownNames;
+            encodedHashes = grownHashes;
+            encodedIds = grownIds;
+        }
+
+        encodedNames[encodedCount] = encoded;
+        encodedHashes[encodedCount] = hash;
+        encodedIds[encodedCount] = id;
+        byteSlots[slot] = ++encodedCount;
+
+        if (encodedCount * 10 >= byteSlots.length * 6) {
+            rehashBytes(byteSlots.length * 2);
+        }
+
+        return names.get(id);
+    }
+
+    String nameOf(int id) {
+        return names.get(id);
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    // Position of each author in alphabetical order of the normalized name; names that normalize
+    // to the same key share a rank, so sorting by rank matches sorting by Book.getAuthorKey()
+    synchronized int[] ranks() {
+        int[] current = ranks;
+
+        if (current == null) {
+            int size = names.size();
+            String[] keys = new String[size];
+            int[] order = new int[size];
+
+            for (int id = 0; id < size; id++) {
+                keys[id] = Book.normalizeKey(names.get(id));
+                order[id] = id;
+            }
+
+            MergeSort.sortIndexes(order, keys);
+
+            current = new int[size];
+            int rank = -1;
+
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || !keys[order[i]].equals(keys[order[i - 1]])) {
+                    rank++;
+                }
+                current[order[i]] = rank;
+            }
+
+            rankCount = rank + 1;
+            ranks = current;
+        }
+
+        return current;
+    }
+
+    synchronized int rankCount() {
+        ranks();
+        return rankCount;
+    }
+
+    private void rehashBytes(int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+
+        for (int entry = 0; entry < encodedCount; entry++) {
+            int slot = encodedHashes[entry] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+        }
+
+        byteSlots = slots;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean sameBytes(byte[] encoded, byte[] bytes, int offset, int length) {
+        if (encoded.length != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (encoded[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
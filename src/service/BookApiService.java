@@ -2,103 +2,235 @@ package service;
 
 import model.Book;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BookApiService {
 
     private static final String CSV_FILE_PATH = "base-books.csv";
-    private static final int TITLE_INDEX = 0;
-    private static final int AUTHOR_INDEX = 1;
-    private static final int ISBN_INDEX = 2;
-    private static final int YEAR_INDEX = 3;
+    private static final String CSV_HEADER = "titulo,autor,isbn,ano";
 
     public static List<Book> loadBooksFromCsv() {
-        List<Book> books = new ArrayList<>();
+        return loadBooksFromCsv(Paths.get(CSV_FILE_PATH));
+    }
 
-        System.out.println("Carregando livros do arquivo " + CSV_FILE_PATH + "...");
+    public static List<Book> loadBooksFromCsv(Path path) {
+        long start = LibraryMetrics.start();
+        try {
+            return readBooksFromCsv(path);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.LOAD, start);
+        }
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(CSV_FILE_PATH))) {
-            String line;
-            boolean isFirstLine = true;
+    private static List<Book> readBooksFromCsv(Path path) {
+        List<Book> books = new ArrayList<>();
 
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
+        System.out.println("Carregando livros do arquivo " + path + "...");
 
-                Book book = parseCsvLine(line);
-                if (book != null) {
-                    books.add(book);
-                }
-            }
+        try {
+            forEachBookInCsv(path, books::add);
 
             System.out.println("Total de " + books.size() + " livros carregados.");
 
         } catch (IOException e) {
             System.err.println("Erro ao ler arquivo CSV: " + e.getMessage());
-            System.err.println("Certifique-se que o arquivo " + CSV_FILE_PATH + " existe no diretório do projeto.");
+            System.err.println("Certifique-se que o arquivo " + path + " existe no diretório do projeto.");
         }
 
         return books;
     }
 
-    private static Book parseCsvLine(String line) {
+    public static List<Book> loadBooksFromCsvInParallel(Path path) {
+        return loadBooksFromCsvInParallel(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static List<Book> loadBooksFromCsvInParallel(Path path, int parallelism) {
+        long start = LibraryMetrics.start();
         try {
-            List<String> fields = new ArrayList<>();
-            StringBuilder currentField = new StringBuilder();
-            boolean inQuotes = false;
-
-            for (int i = 0; i < line.length(); i++) {
-                char c = line.charAt(i);
-
-                if (c == '"') {
-                    if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                        currentField.append('"');
-                        i++;
-                    } else {
-                        inQuotes = !inQuotes;
-                    }
-                } else if (c == ',' && !inQuotes) {
-                    fields.add(currentField.toString());
-                    currentField = new StringBuilder();
-                } else {
-                    currentField.append(c);
+            return readBooksFromCsvInParallel(path, parallelism);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.LOAD, start);
+        }
+    }
+
+    private static List<Book> readBooksFromCsvInParallel(Path path, int parallelism) {
+        List<Book> books = new ArrayList<>();
+
+        System.out.println("Carregando livros do arquivo " + path + " com " + parallelism + " threads...");
+
+        try {
+            books = ParallelCsvLoader.load(path, parallelism);
+
+            System.out.println("Total de " + books.size() + " livros carregados.");
+
+        } catch (IOException e) {
+            System.err.println("Erro ao ler arquivo CSV: " + e.getMessage());
+            System.err.println("Certifique-se que o arquivo " + path + " existe no diretório do projeto.");
+        }
+
+        return books;
+    }
+
+    // Written to a temporary file, flushed to disk and then moved over the target, so a crash never leaves a
+    // half-written catalog behind
+    public static void writeBooksToCsv(List<Book> books, Path path) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        String lineEnding = lineEndingOf(target);
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 1 << 16);
+
+            writer.write(CSV_HEADER);
+            writer.write(lineEnding);
+
+            for (Book book : books) {
+                writeCsvField(writer, book.getTitle());
+                writer.write(',');
+                writeCsvField(writer, book.getAuthor());
+                writer.write(',');
+                writeCsvField(writer, book.getIsbn());
+                writer.write(',');
+                if (book.getYear() != null) {
+                    writer.write(Integer.toString(book.getYear()));
+                }
+                writer.write(lineEnding);
+            }
+
+            writer.flush();
+            channel.force(true);
+        }
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(target.getParent());
+    }
+
+    // Keeps the line ending of the file being replaced (the bundled base-books.csv uses CRLF), so rewriting it
+    // doesn't turn every line into a diff
+    private static String lineEndingOf(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return "\n";
+        }
+
+        try (InputStream input = Files.newInputStream(path)) {
+            byte[] head = new byte[1 << 12];
+            int length = input.readNBytes(head, 0, head.length);
+
+            for (int i = 0; i < length; i++) {
+                if (head[i] == '\n') {
+                    return i > 0 && head[i - 1] == '\r' ? "\r\n" : "\n";
                 }
             }
-            fields.add(currentField.toString());
+        }
+
+        return "\n";
+    }
+
+    // The rename is only durable once the directory entry reaches the disk; until then a crash can bring back
+    // the old file, so callers that delete data covered by the new file must wait for this
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static void forEachBookInCsv(Path path, Consumer<Book> consumer) throws IOException {
+        try (CsvBookReader reader = CsvBookReader.open(path)) {
+            reader.skipRecord();
 
-            if (fields.size() < 4) {
-                return null;
+            Book book;
+            while ((book = reader.next()) != null) {
+                consumer.accept(book);
             }
+        }
+    }
+
+    public static Stream<Book> streamBooksFromCsv(Path path) throws IOException {
+        CsvBookReader reader = CsvBookReader.open(path);
+
+        try {
+            reader.skipRecord();
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+
+        Iterator<Book> iterator = new Iterator<Book>() {
+            private Book nextBook;
 
-            String title = fields.get(TITLE_INDEX).trim();
-            String author = fields.get(AUTHOR_INDEX).trim();
-            String isbn = fields.get(ISBN_INDEX).trim();
-            String yearStr = fields.get(YEAR_INDEX).trim();
-
-            Integer year = null;
-            if (!yearStr.isEmpty()) {
-                try {
-                    year = Integer.parseInt(yearStr);
-                } catch (NumberFormatException e) {
-                    System.err.println("Erro ao converter ano para inteiro: " + e.getMessage());
+            @Override
+            public boolean hasNext() {
+                if (nextBook == null) {
+                    try {
+                        nextBook = reader.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 }
+                return nextBook != null;
             }
 
-            if (title.isEmpty() || author.isEmpty() || isbn.isEmpty()) {
-                return null;
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Book book = nextBook;
+                nextBook = null;
+                return book;
             }
+        };
+
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
-            return new Book(title, author, isbn, year);
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean needsQuotes = false;
 
-        } catch (Exception e) {
-            System.err.println("Erro ao fazer parse da linha CSV: " + e.getMessage());
-            return null;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
         }
+
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
     }
 }
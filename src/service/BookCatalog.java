@@ -0,0 +1,27 @@
+package service;
+
+import model.Book;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+// A read-only catalog in title order whose rows are read column by column; get() builds the Book of a row only
+// when it is asked for, so LibraryService can run on millions of rows without holding a Book for each one
+public interface BookCatalog extends List<Book>, RandomAccess {
+
+    // Row of the book with this ISBN, or -1
+    int rowOf(String isbn);
+
+    String isbnOf(int row);
+
+    Integer yearOf(int row);
+
+    int authorIdOf(int row);
+
+    int authorCount();
+
+    String authorName(int authorId);
+
+    // The ISBN-13s made of digits that start with these digits, in ascending order
+    List<String> isbnsWithPrefix(String digits);
+}
@@ -0,0 +1,519 @@
+package service;
+
+import algorithm.MergeSort;
+import model.Book;
+import structure.StringDictionary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ColumnarCatalog extends AbstractList<Book> implements BookCatalog {
+
+    private static final short NO_YEAR = Short.MIN_VALUE;
+    private static final int DERIVED_KEY = -1;
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX_PASSES = 3;
+
+    private final long[] isbns;
+    private final short[] years;
+    private final int[] titleIds;
+    private final int[] authorIds;
+    // Title ids are in key order, so comparing ids compares titles the way BinarySearch does
+    private final StringDictionary titles;
+    private final StringDictionary authors;
+    private final int[] rowsByIsbn;
+    // Most keys are the title itself with ASCII capitals lowered and are compared straight from the title bytes;
+    // only the other titles (accents, other scripts) store their key, once, in keys
+    private final int[] titleKeyIds;
+    private final StringDictionary keys;
+    private final Map<String, Integer> otherIsbnRows;
+    private final Map<Integer, String> otherIsbns;
+    private final Map<Integer, Integer> otherYears;
+
+    private ColumnarCatalog(Builder builder, int[] rowOrder, int[] titleRanks, String[] keysByRank) {
+        int size = rowOrder.length;
+        this.isbns = new long[size];
+        this.years = new short[size];
+        this.titleIds = new int[size];
+        this.authorIds = new int[size];
+        this.titles = new StringDictionary();
+        this.authors = builder.authors;
+        this.titleKeyIds = new int[keysByRank.length];
+        this.keys = new StringDictionary();
+        this.otherIsbnRows = new HashMap<>();
+        this.otherIsbns = new HashMap<>();
+        this.otherYears = new HashMap<>();
+
+        int[] titlesByRank = new int[titleRanks.length];
+        for (int id = 0; id < titleRanks.length; id++) {
+            titlesByRank[titleRanks[id]] = id;
+        }
+
+        for (int rank = 0; rank < keysByRank.length; rank++) {
+            String title = builder.titles.get(titlesByRank[rank]);
+            titles.intern(title);
+            titleKeyIds[rank] = isAsciiFolding(title, keysByRank[rank]) ? DERIVED_KEY : keys.intern(keysByRank[rank]);
+        }
+
+        for (int row = 0; row < size; row++) {
+            int source = rowOrder[row];
+            isbns[row] = builder.isbns[source];
+            years[row] = builder.years[source];
+            titleIds[row] = titleRanks[builder.titleIds[source]];
+            authorIds[row] = builder.authorIds[source];
+
+            if (isbns[row] == IsbnKeys.NONE) {
+                String isbn = builder.otherIsbns.get(source);
+                otherIsbns.put(row, isbn);
+                otherIsbnRows.put(isbn, row);
+            }
+
+            if (years[row] == NO_YEAR && !builder.otherYears.isEmpty()) {
+                Integer year = builder.otherYears.get(source);
+                if (year != null) {
+                    otherYears.put(row, year);
+                }
+            }
+        }
+
+        titles.compact();
+        authors.compact();
+        keys.compact();
+
+        this.rowsByIsbn = sortRowsByIsbn(isbns, size);
+    }
+
+    // Collects the books one at a time, in any order, so a catalog can be built straight from the CSV without
+    // holding a list of Book objects; build() puts the rows in title order
+    public static class Builder {
+
+        private long[] isbns;
+        private short[] years;
+        private int[] titleIds;
+        private int[] authorIds;
+        private int size;
+        private final StringDictionary titles = new StringDictionary();
+        private final StringDictionary authors = new StringDictionary();
+        private final Map<Integer, String> otherIsbns = new HashMap<>();
+        private final Map<Integer, Integer> otherYears = new HashMap<>();
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            isbns = new long[capacity];
+            years = new short[capacity];
+            titleIds = new int[capacity];
+            authorIds = new int[capacity];
+        }
+
+        public Builder add(Book book) {
+            if (size == isbns.length) {
+                int capacity = size * 2;
+                isbns = Arrays.copyOf(isbns, capacity);
+                years = Arrays.copyOf(years, capacity);
+                titleIds = Arrays.copyOf(titleIds, capacity);
+                authorIds = Arrays.copyOf(authorIds, capacity);
+            }
+
+            long isbn = IsbnKeys.toKey(book.getIsbn());
+            isbns[size] = isbn;
+
+            if (isbn == IsbnKeys.NONE) {
+                otherIsbns.put(size, book.getIsbn());
+            }
+
+            Integer year = book.getYear();
+            if (year == null) {
+                years[size] = NO_YEAR;
+            } else if (year > NO_YEAR && year <= Short.MAX_VALUE) {
+                years[size] = (short) (int) year;
+            } else {
+                years[size] = NO_YEAR;
+                otherYears.put(size, year);
+            }
+
+            titleIds[size] = titles.intern(book.getTitle());
+            authorIds[size] = authors.intern(book.getAuthor());
+            size++;
+            return this;
+        }
+
+        // Sorts the distinct titles by key, then places the rows with a counting sort by title rank; rows with
+        // the same title keep the order they were added in
+        public ColumnarCatalog build() {
+            boolean[] repeated = findRepeatedIsbns();
+            int titleCount = titles.size();
+            String[] keys = new String[titleCount];
+            int[] byKey = new int[titleCount];
+
+            for (int id = 0; id < titleCount; id++) {
+                keys[id] = Book.normalizeKey(titles.get(id));
+                byKey[id] = id;
+            }
+
+            MergeSort.sortIndexes(byKey, keys);
+
+            int[] titleRanks = new int[titleCount];
+            String[] keysByRank = new String[titleCount];
+
+            for (int rank = 0; rank < titleCount; rank++) {
+                titleRanks[byKey[rank]] = rank;
+                keysByRank[rank] = keys[byKey[rank]];
+            }
+
+            int[] positions = new int[titleCount + 1];
+            int rowCount = 0;
+
+            for (int row = 0; row < size; row++) {
+                if (!repeated[row]) {
+                    positions[titleRanks[titleIds[row]] + 1]++;
+                    rowCount++;
+                }
+            }
+            for (int rank = 0; rank < titleCount; rank++) {
+                positions[rank + 1] += positions[rank];
+            }
+
+            int[] rowOrder = new int[rowCount];
+            for (int row = 0; row < size; row++) {
+                if (!repeated[row]) {
+                    rowOrder[positions[titleRanks[titleIds[row]]]++] = row;
+                }
+            }
+
+            return new ColumnarCatalog(this, rowOrder, titleRanks, keysByRank);
+        }
+
+        // A repeated ISBN keeps only the first book added with it, since rowOf() finds one row per ISBN. The
+        // radix sort is stable, so of the rows with the same ISBN the first one added comes first.
+        private boolean[] findRepeatedIsbns() {
+            boolean[] repeated = new boolean[size];
+            int count = 0;
+
+            int[] rows = sortRowsByIsbn(isbns, size);
+            for (int i = 1; i < rows.length; i++) {
+                if (isbns[rows[i]] == isbns[rows[i - 1]]) {
+                    repeated[rows[i]] = true;
+                    count++;
+                }
+            }
+
+            Set<String> seen = new HashSet<>();
+            for (int row = 0; row < size; row++) {
+                if (isbns[row] == IsbnKeys.NONE && !seen.add(otherIsbns.get(row))) {
+                    repeated[row] = true;
+                    count++;
+                }
+            }
+
+            if (count > 0) {
+                System.err.println("Livros com ISBN repetido ignorados: " + count);
+            }
+
+            return repeated;
+        }
+    }
+
+    public static ColumnarCatalog of(List<Book> books) {
+        Builder builder = new Builder(books.size());
+
+        for (Book book : books) {
+            builder.add(book);
+        }
+
+        return builder.build();
+    }
+
+    public static ColumnarCatalog fromCsv(Path path) throws IOException {
+        Builder builder = new Builder();
+        BookApiService.forEachBookInCsv(path, builder::add);
+        return builder.build();
+    }
+
+    @Override
+    public Book get(int row) {
+        checkRow(row);
+        return new Book(titles.get(titleIds[row]), authors.get(authorIds[row]), isbnOf(row), yearOf(row));
+    }
+
+    @Override
+    public int size() {
+        return isbns.length;
+    }
+
+    @Override
+    public int rowOf(String isbn) {
+        long key = IsbnKeys.toKey(isbn);
+
+        if (key == IsbnKeys.NONE) {
+            Integer row = otherIsbnRows.get(isbn);
+            return row == null ? -1 : row;
+        }
+
+        int index = isbnLowerBound(key);
+        return index < rowsByIsbn.length && isbns[rowsByIsbn[index]] == key ? rowsByIsbn[index] : -1;
+    }
+
+    @Override
+    public String isbnOf(int row) {
+        checkRow(row);
+        return isbns[row] == IsbnKeys.NONE ? otherIsbns.get(row) : IsbnKeys.format(isbns[row]);
+    }
+
+    @Override
+    public Integer yearOf(int row) {
+        checkRow(row);
+
+        if (years[row] != NO_YEAR) {
+            return (int) years[row];
+        }
+        return otherYears.isEmpty() ? null : otherYears.get(row);
+    }
+
+    @Override
+    public int authorIdOf(int row) {
+        checkRow(row);
+        return authorIds[row];
+    }
+
+    @Override
+    public int authorCount() {
+        return authors.size();
+    }
+
+    @Override
+    public String authorName(int authorId) {
+        return authors.get(authorId);
+    }
+
+    @Override
+    public List<String> isbnsWithPrefix(String digits) {
+        long[] range = IsbnKeys.rangeOf(digits);
+
+        if (range == null) {
+            return Collections.emptyList();
+        }
+
+        int from = isbnLowerBound(range[0]);
+        int to = isbnLowerBound(range[1]);
+
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return IsbnKeys.format(isbns[rowsByIsbn[from + index]]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    public Book findBookByIsbn(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return null;
+        }
+
+        int row = rowOf(isbn.trim());
+        return row < 0 ? null : get(row);
+    }
+
+    // Same results as BinarySearch.searchExact and searchByPrefix, but the probes compare the query with the
+    // key column instead of building a Book (and normalizing its title) for every row they look at
+    public List<Book> searchByTitle(String title) {
+        List<Book> results = new ArrayList<>();
+
+        if (title == null || title.trim().isEmpty()) {
+            return results;
+        }
+
+        String key = Book.normalizeKey(title.trim());
+
+        for (int row = lowerBound(key); row < isbns.length && compareKey(titleIds[row], key) == 0; row++) {
+            results.add(get(row));
+        }
+
+        return results;
+    }
+
+    public List<Book> searchByTitlePrefix(String prefix, int offset, int limit) {
+        List<Book> results = new ArrayList<>();
+
+        if (prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        String key = Book.normalizeKey(prefix.trim());
+        int first = lowerBound(key);
+        int last = prefixUpperBound(key);
+
+        for (int row = first + Math.min(Math.max(0, offset), last - first); row < last && results.size() < limit;
+                row++) {
+            results.add(get(row));
+        }
+
+        return results;
+    }
+
+    public int countByTitlePrefix(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return 0;
+        }
+
+        String key = Book.normalizeKey(prefix.trim());
+        return prefixUpperBound(key) - lowerBound(key);
+    }
+
+    public int getDistinctAuthors() {
+        return authors.size();
+    }
+
+    private int lowerBound(String key) {
+        int left = 0;
+        int right = isbns.length;
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+
+            if (compareKey(titleIds[middle], key) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    private int prefixUpperBound(String prefix) {
+        int left = 0;
+        int right = isbns.length;
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+            int titleId = titleIds[middle];
+
+            if (keyStartsWith(titleId, prefix) || compareKey(titleId, prefix) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    private int compareKey(int titleId, String key) {
+        int keyId = titleKeyIds[titleId];
+        return keyId == DERIVED_KEY ? titles.compareTo(titleId, key, true) : keys.compareTo(keyId, key, false);
+    }
+
+    private boolean keyStartsWith(int titleId, String prefix) {
+        int keyId = titleKeyIds[titleId];
+        return keyId == DERIVED_KEY ? titles.startsWith(titleId, prefix, true) : keys.startsWith(keyId, prefix, false);
+    }
+
+    private int isbnLowerBound(long key) {
+        int left = 0;
+        int right = rowsByIsbn.length;
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+
+            if (isbns[rowsByIsbn[middle]] < key) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= isbns.length) {
+            throw new IndexOutOfBoundsException("Índice: " + row + ", Tamanho: " + isbns.length);
+        }
+    }
+
+    // True when the key is the title with A-Z lowered, which compareKey can then read from the title bytes
+    private static boolean isAsciiFolding(String title, String key) {
+        if (title.length() != key.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            char folded = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            if (c >= 0x80 || folded != key.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // LSD radix sort of the first size rows with a numeric ISBN (< 2^48), 16 bits per pass; stable, so rows
+    // with the same ISBN stay in row order
+    static int[] sortRowsByIsbn(long[] isbns, int size) {
+        int numericIsbns = 0;
+
+        for (int row = 0; row < size; row++) {
+            if (isbns[row] != IsbnKeys.NONE) {
+                numericIsbns++;
+            }
+        }
+
+        int[] rows = new int[numericIsbns];
+        int count = 0;
+
+        for (int row = 0; row < size; row++) {
+            if (isbns[row] != IsbnKeys.NONE) {
+                rows[count++] = row;
+            }
+        }
+
+        int[] buffer = new int[numericIsbns];
+        int[] positions = new int[(1 << RADIX_BITS) + 1];
+        int mask = (1 << RADIX_BITS) - 1;
+
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = 0;
+            }
+
+            for (int row : rows) {
+                positions[(int) ((isbns[row] >>> shift) & mask) + 1]++;
+            }
+
+            for (int i = 0; i < mask + 1; i++) {
+                positions[i + 1] += positions[i];
+            }
+
+            for (int row : rows) {
+                buffer[positions[(int) ((isbns[row] >>> shift) & mask)]++] = row;
+            }
+
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+
+        return rows;
+    }
+}
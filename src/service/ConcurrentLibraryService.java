@@ -0,0 +1,225 @@
+package service;
+
+import algorithm.MergeSort;
+import model.Book;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class ConcurrentLibraryService {
+
+    private final LibraryService library;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile WriteAheadLog writeAheadLog;
+
+    public ConcurrentLibraryService() {
+        this.library = new LibraryService();
+    }
+
+    public ConcurrentLibraryService(List<Book> initialBooks) {
+        this.library = new LibraryService(initialBooks);
+    }
+
+    public ConcurrentLibraryService(BookCatalog catalog) {
+        this.library = new LibraryService(catalog);
+    }
+
+    public String addBook(String title, String author) {
+        return write(LibraryMetrics.Operation.ADD, () -> library.insertBook(title, author, null));
+    }
+
+    public String addBook(String title, String author, Integer year) {
+        return write(LibraryMetrics.Operation.ADD, () -> library.insertBook(title, author, year));
+    }
+
+    public List<String> addBooks(Collection<Book> newBooks) {
+        return write(LibraryMetrics.Operation.ADD, () -> library.insertBooks(newBooks));
+    }
+
+    public boolean removeBook(String isbn) {
+        return write(LibraryMetrics.Operation.REMOVE, () -> library.deleteBook(isbn));
+    }
+
+    public boolean updateBook(String isbn, String newTitle, String newAuthor) {
+        return write(LibraryMetrics.Operation.UPDATE, () -> library.applyUpdate(isbn, newTitle, newAuthor, null));
+    }
+
+    public boolean updateBook(String isbn, String newTitle, String newAuthor, Integer newYear) {
+        return write(LibraryMetrics.Operation.UPDATE,
+                () -> library.applyUpdate(isbn, newTitle, newAuthor, newYear));
+    }
+
+    // Readers take no lock: LibraryService reads its current version once per call and never changes it, so a
+    // reader is never blocked by a writer, and is timed by LibraryService like a single-threaded call
+    public List<Book> searchBooksByTitle(String title) {
+        return library.searchBooksByTitle(title);
+    }
+
+    public List<Book> searchBooksByTitleFuzzy(String title, int maxDistance, int limit) {
+        return library.searchBooksByTitleFuzzy(title, maxDistance, limit);
+    }
+
+    public List<Book> searchBooksByTitlePrefix(String prefix, int offset, int limit) {
+        return library.searchBooksByTitlePrefix(prefix, offset, limit);
+    }
+
+    public int countBooksByTitlePrefix(String prefix) {
+        return library.countBooksByTitlePrefix(prefix);
+    }
+
+    public List<Book> searchBooksByWords(String query, boolean matchAllWords) {
+        return library.searchBooksByWords(query, matchAllWords);
+    }
+
+    public Book findBookByIsbn(String isbn) {
+        return library.findBookByIsbn(isbn);
+    }
+
+    public boolean isbnExists(String isbn) {
+        return library.isbnExists(isbn);
+    }
+
+    public List<Book> listAllBooksSortedBy(MergeSort.SortBy sortBy) {
+        return library.listAllBooksSortedBy(sortBy);
+    }
+
+    public int getTotalBooks() {
+        return library.getTotalBooks();
+    }
+
+    // Replays the changes left in the log by previous runs; like in LibraryService, it must run before
+    // setWriteAheadLog, otherwise the replayed removals would be logged again
+    public int recover(WriteAheadLog writeAheadLog) throws IOException {
+        lock.lock();
+        try {
+            return writeAheadLog.recover(library);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        write(() -> {
+            library.deferDurability();
+            library.setWriteAheadLog(writeAheadLog);
+            this.writeAheadLog = writeAheadLog;
+            return null;
+        });
+    }
+
+    public void compact() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+
+        if (log == null) {
+            throw new IllegalStateException("Nenhum log de alterações configurado");
+        }
+
+        if (!log.startCompaction()) {
+            return;
+        }
+
+        LibraryService.State snapshot;
+        long generation;
+
+        lock.lock();
+        try {
+            snapshot = library.currentState();
+            generation = log.rotate();
+        } catch (IOException | RuntimeException e) {
+            log.cancelCompaction();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+
+        // Writers go on while the files are written; their changes are applied again onto the new catalog
+        BookCatalog catalog = log.compact(snapshot.books, generation);
+
+        if (catalog != null) {
+            write(() -> {
+                library.rebase(snapshot, catalog);
+                return null;
+            });
+        }
+    }
+
+    public ColumnarCatalog toColumnarCatalog() {
+        return library.toColumnarCatalog();
+    }
+
+    public String getStatistics() {
+        return library.getStatistics();
+    }
+
+    public Map<String, Integer> getTopAuthors(int limit) {
+        return library.getTopAuthors(limit);
+    }
+
+    public Map<String, Integer> getBooksPerAuthor() {
+        return library.getBooksPerAuthor();
+    }
+
+    public SortedMap<Integer, Integer> getBooksPerYear() {
+        return library.getBooksPerYear();
+    }
+
+    public int getBooksWithoutYear() {
+        return library.getBooksWithoutYear();
+    }
+
+    public QueryCache.Statistics getQueryCacheStatistics() {
+        return library.getQueryCacheStatistics();
+    }
+
+    // Timed from before taking the lock until the change is on disk: lock wait and fsync are what a caller pays.
+    // The operation calls LibraryService's untimed internals, so it is recorded once.
+    private <T> T write(LibraryMetrics.Operation timedAs, Supplier<T> operation) {
+        long start = LibraryMetrics.start();
+        T result;
+        try {
+            result = write(operation);
+        } finally {
+            LibraryMetrics.record(timedAs, start);
+        }
+
+        WriteAheadLog log = writeAheadLog;
+
+        if (log != null && log.shouldCompact()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Erro ao compactar o log de alterações: " + e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    // The change is only appended to the log inside the lock; waiting for it to reach the disk happens after
+    // releasing it, so the writers queued behind are flushed together with this one
+    private <T> T write(Supplier<T> operation) {
+        T result;
+        long sequence;
+
+        lock.lock();
+        try {
+            result = operation.get();
+            sequence = library.lastLogSequence();
+        } finally {
+            lock.unlock();
+        }
+
+        WriteAheadLog log = writeAheadLog;
+
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,323 @@
+package service;
+
+import model.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class CsvBookReader implements Closeable {
+
+    private static final long WINDOW_SIZE = 1L << 28;
+    // A quoted field still open after this many bytes is taken as a stray quote, not as a real field
+    private static final int MAX_RECORD_SIZE = (int) Math.min(WINDOW_SIZE / 2,
+            Math.max(1, Integer.getInteger("library.csv.maxRecordSize", 1 << 20)));
+    private static final int TITLE_INDEX = 0;
+    private static final int AUTHOR_INDEX = 1;
+    private static final int ISBN_INDEX = 2;
+    private static final int YEAR_INDEX = 3;
+    private static final int FIELD_COUNT = 4;
+    private static final int END_OF_INPUT = -1;
+    private static final int INCOMPLETE_RECORD = -2;
+    private static final int MALFORMED_RECORD = -3;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+
+    private MappedByteBuffer buffer;
+    private long windowStart;
+    private int position;
+
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+    private byte[] scratch = new byte[256];
+    private final AuthorDictionary authors = new AuthorDictionary();
+
+    CsvBookReader(FileChannel channel, long start, long end) throws IOException {
+        this(channel, start, end, false);
+    }
+
+    private CsvBookReader(FileChannel channel, long start, long end, boolean ownsChannel) throws IOException {
+        this.channel = channel;
+        this.end = end;
+        this.ownsChannel = ownsChannel;
+        map(start);
+    }
+
+    static CsvBookReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CsvBookReader(channel, 0, channel.size(), true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    boolean skipRecord() throws IOException {
+        return parseRecord() != END_OF_INPUT;
+    }
+
+    long filePosition() {
+        return windowStart + position;
+    }
+
+    Book next() throws IOException {
+        int fields;
+
+        while ((fields = parseRecord()) != END_OF_INPUT) {
+            if (fields < FIELD_COUNT) {
+                continue;
+            }
+
+            Book book = toBook();
+            if (book != null) {
+                return book;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private int parseRecord() throws IOException {
+        while (true) {
+            int fields = scanRecord();
+
+            if (fields == MALFORMED_RECORD) {
+                System.err.println("Registro CSV com aspas sem fechamento na linha " + lineAt(filePosition())
+                        + " ignorado");
+                skipLine();
+                continue;
+            }
+
+            if (fields != INCOMPLETE_RECORD) {
+                return fields;
+            }
+
+            if (position == 0) {
+                throw new IOException("Registro CSV maior que a janela de leitura em " + windowStart);
+            }
+            map(windowStart + position);
+        }
+    }
+
+    // Splits one record into field offsets without copying; newlines and commas inside quotes belong to the field.
+    // A quote that is still open at the end of the input or after MAX_RECORD_SIZE bytes makes the record malformed.
+    private int scanRecord() {
+        int limit = buffer.limit();
+        int index = position;
+
+        if (index >= limit) {
+            return isLastWindow() ? END_OF_INPUT : INCOMPLETE_RECORD;
+        }
+
+        int fieldCount = 0;
+        int start = index;
+        boolean inQuotes = false;
+        boolean quoted = false;
+
+        while (index < limit) {
+            if (inQuotes && index - position > MAX_RECORD_SIZE) {
+                return MALFORMED_RECORD;
+            }
+
+            byte b = buffer.get(index);
+
+            if (b == '"') {
+                inQuotes = !inQuotes;
+                quoted = true;
+            } else if (!inQuotes && (b == ',' || b == '\n')) {
+                markField(fieldCount++, start, index, quoted);
+                start = index + 1;
+                quoted = false;
+
+                if (b == '\n') {
+                    position = index + 1;
+                    return fieldCount;
+                }
+            }
+
+            index++;
+        }
+
+        if (!isLastWindow()) {
+            return INCOMPLETE_RECORD;
+        }
+
+        if (inQuotes) {
+            return MALFORMED_RECORD;
+        }
+
+        markField(fieldCount++, start, limit, quoted);
+        position = limit;
+        return fieldCount;
+    }
+
+    // Drops the rest of the physical line the malformed record started on; parsing resumes on the next line
+    private void skipLine() throws IOException {
+        while (true) {
+            int limit = buffer.limit();
+
+            for (int i = position; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    position = i + 1;
+                    return;
+                }
+            }
+
+            if (isLastWindow()) {
+                position = limit;
+                return;
+            }
+            map(windowStart + limit);
+        }
+    }
+
+    // Only used for error messages: counts the newlines before the offset, from the start of the file
+    private long lineAt(long offset) throws IOException {
+        long line = 1;
+
+        for (long start = 0; start < offset; start += WINDOW_SIZE) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(WINDOW_SIZE, offset - start));
+
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    line++;
+                }
+            }
+        }
+
+        return line;
+    }
+
+    private void markField(int index, int start, int end, boolean quoted) {
+        if (index < FIELD_COUNT) {
+            fieldStart[index] = start;
+            fieldEnd[index] = end;
+            fieldQuoted[index] = quoted;
+        }
+    }
+
+    private Book toBook() {
+        String title = decodeField(TITLE_INDEX);
+        int authorLength = copyField(AUTHOR_INDEX);
+        String author = authorLength == 0 ? "" : authors.intern(scratch, 0, authorLength);
+        String isbn = decodeField(ISBN_INDEX);
+        Integer year = parseYear();
+
+        if (title.isEmpty() || author.isEmpty() || isbn.isEmpty()) {
+            return null;
+        }
+
+        return new Book(title, author, isbn, year);
+    }
+
+    private String decodeField(int index) {
+        int length = copyField(index);
+        return length == 0 ? "" : new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private Integer parseYear() {
+        int length = copyField(YEAR_INDEX);
+
+        if (length == 0) {
+            return null;
+        }
+
+        if (length <= 9) {
+            int year = 0;
+            int i = 0;
+            for (; i < length; i++) {
+                byte b = scratch[i];
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                year = year * 10 + (b - '0');
+            }
+            if (i == length) {
+                return year;
+            }
+        }
+
+        String yearStr = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        try {
+            return Integer.parseInt(yearStr);
+        } catch (NumberFormatException e) {
+            System.err.println("Erro ao converter ano para inteiro: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Copies the trimmed, unquoted bytes of a field into the shared scratch array and returns their length
+    private int copyField(int index) {
+        int start = fieldStart[index];
+        int end = fieldEnd[index];
+
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+
+        int length = 0;
+
+        if (fieldQuoted[index]) {
+            boolean inQuotes = false;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    if (inQuotes && i + 1 < end && buffer.get(i + 1) == '"') {
+                        scratch[length++] = '"';
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+                    }
+                } else {
+                    scratch[length++] = b;
+                }
+            }
+        } else {
+            buffer.position(start);
+            buffer.get(scratch, 0, end - start);
+            length = end - start;
+        }
+
+        int first = 0;
+        while (first < length && (scratch[first] & 0xFF) <= ' ') {
+            first++;
+        }
+        while (length > first && (scratch[length - 1] & 0xFF) <= ' ') {
+            length--;
+        }
+
+        if (first > 0) {
+            System.arraycopy(scratch, first, scratch, 0, length - first);
+        }
+
+        return length - first;
+    }
+
+    private boolean isLastWindow() {
+        return windowStart + buffer.limit() >= end;
+    }
+
+    private void map(long start) throws IOException {
+        long size = Math.min(WINDOW_SIZE, Math.max(0, end - start));
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+        position = 0;
+    }
+}
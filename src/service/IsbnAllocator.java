@@ -0,0 +1,173 @@
+package service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out valid ISBN-13s from a reserved range: 979-0 (assigned to printed music, never to books) + 8-digit
+// sequence + check digit. Each thread reserves a block of sequence numbers with a single atomic add and numbers
+// from it without touching shared state, so allocation never blocks and never repeats a number.
+// ISBNs that already exist are reported with observe(). The ones this allocator issued before lie close together
+// at the start of the range and move the sequence past them; any other ISBN of the range goes to an exclusion
+// set and is skipped, so a single far-away ISBN can't exhaust the range. Reports must happen before the
+// allocations they could collide with, which the single writer of LibraryService guarantees.
+public class IsbnAllocator {
+
+    private static final long PREFIX = 9790;
+    private static final String PREFIX_TEXT = "9790";
+    private static final long SEQUENCE_LIMIT = 100_000_000L;
+    private static final int BLOCK_SIZE = 1024;
+    // Blocks left half used by every thread of a run are the only holes between issued numbers
+    private static final long MAX_GAP = 1 << 20;
+
+    private static class Block {
+        long next;
+        long end;
+    }
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong highestObserved = new AtomicLong(-1);
+    private final Set<Long> excluded = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    public String next() {
+        return Long.toString(nextIsbn());
+    }
+
+    public long nextIsbn() {
+        Block block = blocks.get();
+
+        while (true) {
+            long observed = highestObserved.get();
+
+            if (block.next <= observed) {
+                block.next = observed + 1;
+            }
+            if (block.next >= block.end) {
+                reserveBlock(block);
+                continue;
+            }
+
+            long sequence = block.next++;
+
+            if (excluded.isEmpty() || !excluded.contains(sequence)) {
+                long withoutCheck = PREFIX * SEQUENCE_LIMIT + sequence;
+                return withoutCheck * 10 + checkDigit(withoutCheck);
+            }
+        }
+    }
+
+    public void observe(String isbn) {
+        long sequence = sequenceOf(isbn);
+
+        if (sequence < 0) {
+            return;
+        }
+
+        if (sequence - nextSequence.get() <= MAX_GAP) {
+            highestObserved.accumulateAndGet(sequence, Math::max);
+            nextSequence.accumulateAndGet(sequence + 1, Math::max);
+        } else {
+            excluded.add(sequence);
+        }
+    }
+
+    // Only the ISBNs of the reserved range matter, and the catalog finds those with its ISBN index
+    public void observeCatalog(BookCatalog catalog) {
+        observeAll(catalog.isbnsWithPrefix(PREFIX_TEXT));
+    }
+
+    // ISBNs come in no particular order, so the issued run is found by bucketing the sequences first:
+    // the run ends at the first hole longer than MAX_GAP, and everything after it is excluded one by one
+    public void observeAll(Iterable<String> isbns) {
+        int bucketCount = (int) ((SEQUENCE_LIMIT + MAX_GAP - 1) / MAX_GAP);
+        long[] bucketMin = new long[bucketCount];
+        long[] bucketMax = new long[bucketCount];
+
+        for (int i = 0; i < bucketCount; i++) {
+            bucketMin[i] = Long.MAX_VALUE;
+            bucketMax[i] = -1;
+        }
+
+        for (String isbn : isbns) {
+            long sequence = sequenceOf(isbn);
+
+            if (sequence >= 0) {
+                int bucket = (int) (sequence / MAX_GAP);
+                bucketMin[bucket] = Math.min(bucketMin[bucket], sequence);
+                bucketMax[bucket] = Math.max(bucketMax[bucket], sequence);
+            }
+        }
+
+        long runEnd = nextSequence.get() - 1;
+
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (bucketMax[bucket] < 0 || bucketMax[bucket] <= runEnd) {
+                continue;
+            }
+            if (bucketMin[bucket] - runEnd > MAX_GAP) {
+                break;
+            }
+            runEnd = bucketMax[bucket];
+        }
+
+        if (runEnd >= 0) {
+            highestObserved.accumulateAndGet(runEnd, Math::max);
+            nextSequence.accumulateAndGet(runEnd + 1, Math::max);
+        }
+
+        for (String isbn : isbns) {
+            long sequence = sequenceOf(isbn);
+
+            if (sequence > runEnd) {
+                excluded.add(sequence);
+            }
+        }
+    }
+
+    public static int checkDigit(long twelveDigits) {
+        int sum = 0;
+
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (twelveDigits % 10);
+            sum += position % 2 == 0 ? digit : digit * 3;
+            twelveDigits /= 10;
+        }
+
+        return (10 - sum % 10) % 10;
+    }
+
+    // nextSequence only grows, by getAndAdd here or by a max in observe(), so reserved blocks never overlap
+    private void reserveBlock(Block block) {
+        long start = nextSequence.getAndAdd(BLOCK_SIZE);
+
+        if (start >= SEQUENCE_LIMIT) {
+            throw new IllegalStateException("Limite de ISBNs gerados atingido");
+        }
+
+        block.next = start;
+        block.end = Math.min(start + BLOCK_SIZE, SEQUENCE_LIMIT);
+    }
+
+    private static long sequenceOf(String isbn) {
+        if (isbn == null || isbn.length() != 13 || !isbn.startsWith(PREFIX_TEXT)) {
+            return -1;
+        }
+
+        long withoutCheck = 0;
+
+        for (int i = 0; i < 12; i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            withoutCheck = withoutCheck * 10 + (c - '0');
+        }
+
+        if (isbn.charAt(12) != (char) ('0' + checkDigit(withoutCheck))) {
+            return -1;
+        }
+
+        return withoutCheck - PREFIX * SEQUENCE_LIMIT;
+    }
+}
@@ -0,0 +1,63 @@
+package service;
+
+// ISBN-13s made only of digits fit in a long (< 2^48), which is how the catalogs store them; any other ISBN
+// keeps its text
+final class IsbnKeys {
+
+    static final long NONE = -1;
+    static final int LENGTH = 13;
+
+    private IsbnKeys() {
+    }
+
+    static long toKey(String isbn) {
+        if (isbn == null || isbn.length() != LENGTH) {
+            return NONE;
+        }
+
+        long key = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') {
+                return NONE;
+            }
+            key = key * 10 + (c - '0');
+        }
+
+        return key;
+    }
+
+    static String format(long key) {
+        char[] digits = new char[LENGTH];
+
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + key % 10);
+            key /= 10;
+        }
+
+        return new String(digits);
+    }
+
+    // The keys from prefix000... up to, not including, the next prefix; null if the prefix isn't digits
+    static long[] rangeOf(String digits) {
+        if (digits == null || digits.isEmpty() || digits.length() > LENGTH) {
+            return null;
+        }
+
+        long prefix = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            prefix = prefix * 10 + (c - '0');
+        }
+
+        long scale = 1;
+        for (int i = digits.length(); i < LENGTH; i++) {
+            scale *= 10;
+        }
+
+        return new long[] { prefix * scale, (prefix + 1) * scale };
+    }
+}
@@ -0,0 +1,289 @@
+package service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// Process-wide counters and latency histograms per operation, read with snapshot() or over JMX; every service in
+// the JVM records into the same histograms. Recording only touches LongAdders (no locks, no allocation). Started
+// with -Dlibrary.metrics=false, ENABLED is a constant false and the JIT removes the calls.
+public final class LibraryMetrics {
+
+    public enum Operation {
+        ADD,
+        REMOVE,
+        UPDATE,
+        SEARCH,
+        FIND_BY_ISBN,
+        LIST,
+        STATISTICS,
+        LOAD
+    }
+
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("library.metrics"));
+
+    // Log-linear buckets (HdrHistogram style): 8 linear sub-buckets per power of two, so any latency is reported
+    // within 12.5% of its real value, from nanoseconds up to centuries
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private static final Recorder[] RECORDERS = new Recorder[Operation.values().length];
+
+    static {
+        for (Operation operation : Operation.values()) {
+            RECORDERS[operation.ordinal()] = new Recorder();
+        }
+
+        if (ENABLED) {
+            registerMBeans();
+        }
+    }
+
+    public interface OperationMetricsMXBean {
+        long getCount();
+
+        double getMeanNanos();
+
+        long getMaxNanos();
+
+        long getP50Nanos();
+
+        long getP90Nanos();
+
+        long getP99Nanos();
+
+        long getP999Nanos();
+    }
+
+    public static class OperationMetrics implements OperationMetricsMXBean {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+
+        OperationMetrics(long count, long totalNanos, long maxNanos, long[] buckets) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return percentile(0.50);
+        }
+
+        @Override
+        public long getP90Nanos() {
+            return percentile(0.90);
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return percentile(0.99);
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return percentile(0.999);
+        }
+
+        // Upper bound of the bucket holding the requested rank, capped by the largest value seen
+        public long percentile(double fraction) {
+            long total = 0;
+            for (long bucketCount : buckets) {
+                total += bucketCount;
+            }
+
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= rank) {
+                    return Math.min(maxNanos, bucketUpperBound(bucket));
+                }
+            }
+
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ops, média %.0f ns, p50 %d ns, p99 %d ns, máx %d ns",
+                    count, getMeanNanos(), getP50Nanos(), getP99Nanos(), maxNanos);
+        }
+    }
+
+    private static class Recorder {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+        Recorder() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucketOf(nanos)].increment();
+        }
+
+        OperationMetrics snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return new OperationMetrics(count.sum(), totalNanos.sum(), maxNanos.get(), counts);
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    private LibraryMetrics() {
+    }
+
+    // Usage: long start = LibraryMetrics.start(); try { ... } finally { LibraryMetrics.record(operation, start); }
+    // Methods that call each other use untimed internal versions, so each operation is recorded once
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void record(Operation operation, long start) {
+        if (ENABLED) {
+            RECORDERS[operation.ordinal()].record(Math.max(0, System.nanoTime() - start));
+        }
+    }
+
+    public static Map<Operation, OperationMetrics> snapshot() {
+        Map<Operation, OperationMetrics> metrics = new EnumMap<>(Operation.class);
+
+        for (Operation operation : Operation.values()) {
+            metrics.put(operation, RECORDERS[operation.ordinal()].snapshot());
+        }
+
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    public static void reset() {
+        for (Recorder recorder : RECORDERS) {
+            recorder.reset();
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+
+        int magnitude = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT;
+        long lowerBound = (1L << magnitude) + (subBucket << (magnitude - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    // One MBean per operation (service:type=LibraryMetrics,operation=ADD, ...) that reads a fresh snapshot
+    private static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (Operation operation : Operation.values()) {
+            Recorder recorder = RECORDERS[operation.ordinal()];
+
+            OperationMetricsMXBean bean = new OperationMetricsMXBean() {
+                @Override
+                public long getCount() {
+                    return recorder.count.sum();
+                }
+
+                @Override
+                public double getMeanNanos() {
+                    return recorder.snapshot().getMeanNanos();
+                }
+
+                @Override
+                public long getMaxNanos() {
+                    return recorder.maxNanos.get();
+                }
+
+                @Override
+                public long getP50Nanos() {
+                    return recorder.snapshot().getP50Nanos();
+                }
+
+                @Override
+                public long getP90Nanos() {
+                    return recorder.snapshot().getP90Nanos();
+                }
+
+                @Override
+                public long getP99Nanos() {
+                    return recorder.snapshot().getP99Nanos();
+                }
+
+                @Override
+                public long getP999Nanos() {
+                    return recorder.snapshot().getP999Nanos();
+                }
+            };
+
+            try {
+                ObjectName name = new ObjectName("service:type=LibraryMetrics,operation=" + operation);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new StandardMBean(bean, OperationMetricsMXBean.class, true), name);
+                }
+            } catch (JMException e) {
+                System.err.println("Erro ao registrar métricas no JMX: " + e.getMessage());
+            }
+        }
+    }
+}
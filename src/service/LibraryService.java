@@ -1,27 +1,64 @@
 package service;
 
 import algorithm.BinarySearch;
+import algorithm.CountingSort;
 import algorithm.MergeSort;
 import model.Book;
+import structure.BKTree;
+import structure.PersistentList;
+import structure.PersistentSortedMap;
+import structure.PostingList;
 
+import java.io.IOException;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Runs on a BookCatalog that is never changed: its rows are read when a search reaches them, and the books added,
+// updated or removed since it was loaded are kept in persistent structures next to it. Every change publishes a
+// new State, so a reader works on one consistent version for the whole call.
 public class LibraryService {
 
-    private List<Book> books;
+    private static final int FUZZY_MAX_DISTANCE = 2;
+    private static final int FUZZY_LIMIT = 5;
+    private static final int MAX_FIELD_BYTES = 65535;
+    private static final long QUERY_CACHE_WEIGHT = Long.getLong("library.queryCache.weight", 100_000);
+    // Stands for a catalog book that was removed, in the changes of a State
+    private static final Book REMOVED = new Book("", "", "", null);
+
+    private volatile State state;
+    private final AuthorDictionary authors = new AuthorDictionary();
+    private WriteAheadLog writeAheadLog;
+    private long lastLogSequence;
+    private boolean deferDurability;
+    private final IsbnAllocator isbnAllocator = new IsbnAllocator();
+    private final QueryCache queryCache = new QueryCache(QUERY_CACHE_WEIGHT);
 
     public LibraryService() {
-        this.books = new ArrayList<>();
+        this(new ColumnarCatalog.Builder().build());
     }
 
+    // The books are copied into a ColumnarCatalog, which sorts them by title and keeps the first book of a
+    // repeated ISBN
     public LibraryService(List<Book> initialBooks) {
-        this.books = new ArrayList<>(initialBooks);
-        sortBooks();
+        this(ColumnarCatalog.of(initialBooks));
+    }
+
+    // Nothing is read from the catalog here but the ISBNs of the generated range, so startup doesn't depend on
+    // its size; the search indexes over it are built on the first search that needs them
+    public LibraryService(BookCatalog catalog) {
+        this.state = new State(new Base(catalog), PersistentList.view(catalog), PersistentSortedMap.empty(),
+                BKTree.empty(), PersistentSortedMap.empty());
+        isbnAllocator.observeCatalog(catalog);
     }
 
     public String addBook(String title, String author) {
@@ -29,35 +66,126 @@ public class LibraryService {
     }
 
     public String addBook(String title, String author, Integer year) {
-        if (title == null || title.trim().isEmpty()) {
-            throw new IllegalArgumentException("Título não pode ser vazio");
+        long start = LibraryMetrics.start();
+        try {
+            return insertBook(title, author, year);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.ADD, start);
         }
+    }
 
-        if (author == null || author.trim().isEmpty()) {
-            throw new IllegalArgumentException("Autor não pode ser vazio");
+    String insertBook(String title, String author, Integer year) {
+        validateBook(title, author, year);
+
+        String isbn = isbnAllocator.next();
+        Book newBook = new Book(title.trim(), authors.intern(author.trim()), isbn, year);
+        logPut(newBook);
+        publish(put(state, newBook));
+        queryCache.invalidate(newBook.getTitleKey());
+        awaitDurability();
+
+        return isbn;
+    }
+
+    public List<String> addBooks(Collection<Book> newBooks) {
+        long start = LibraryMetrics.start();
+        try {
+            return insertBooks(newBooks);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.ADD, start);
         }
+    }
 
-        if (year != null && (year < 0 || year > Year.now().getValue())) {
-            throw new IllegalArgumentException("Ano inválido. Deve estar entre 0 e " + Year.now().getValue());
+    List<String> insertBooks(Collection<Book> newBooks) {
+        List<String> isbns = new ArrayList<>();
+
+        if (newBooks == null || newBooks.isEmpty()) {
+            return isbns;
         }
 
-        String isbn = generateUniqueIsbn();
-        Book newBook = new Book(title.trim(), author.trim(), isbn, year);
-        books.add(newBook);
+        Set<String> batchIsbns = new HashSet<>();
 
-        sortBooks();
+        for (Book book : newBooks) {
+            validateBook(book.getTitle(), book.getAuthor(), book.getYear());
 
-        return isbn;
+            String isbn = book.getIsbn();
+            if (isbn != null && !isbn.trim().isEmpty()) {
+                validateFieldLength(isbn.trim(), "ISBN");
+                if (containsIsbn(isbn.trim())) {
+                    throw new IllegalArgumentException("ISBN já cadastrado: " + isbn.trim());
+                }
+                if (!batchIsbns.add(isbn.trim())) {
+                    throw new IllegalArgumentException("ISBN repetido no lote: " + isbn.trim());
+                }
+            }
+        }
+
+        // Generated ISBNs must skip the ones given in the batch
+        for (String isbn : batchIsbns) {
+            isbnAllocator.observe(isbn);
+        }
+
+        List<Book> batch = new ArrayList<>(newBooks.size());
+
+        for (Book book : newBooks) {
+            String isbn = book.getIsbn();
+
+            if (isbn == null || isbn.trim().isEmpty()) {
+                isbn = isbnAllocator.next();
+            }
+
+            Book newBook = new Book(book.getTitle().trim(), authors.intern(book.getAuthor().trim()), isbn.trim(),
+                    book.getYear());
+            batch.add(newBook);
+            isbns.add(newBook.getIsbn());
+        }
+
+        // The whole batch goes to the log in one append before any of it is applied
+        if (writeAheadLog != null) {
+            lastLogSequence = writeAheadLog.logPuts(batch);
+        }
+
+        State next = state;
+        for (Book newBook : batch) {
+            next = put(next, newBook);
+        }
+
+        publish(next);
+        for (Book newBook : batch) {
+            queryCache.invalidate(newBook.getTitleKey());
+        }
+        awaitDurability();
+
+        return isbns;
     }
 
     public boolean removeBook(String isbn) {
+        long start = LibraryMetrics.start();
+        try {
+            return deleteBook(isbn);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.REMOVE, start);
+        }
+    }
+
+    boolean deleteBook(String isbn) {
         if (isbn == null || isbn.trim().isEmpty()) {
             return false;
         }
 
-        boolean removed = books.removeIf(book -> book.getIsbn().equals(isbn.trim()));
+        State current = state;
+        Book book = lookup(current, isbn.trim());
+
+        if (book == null) {
+            return false;
+        }
+
+        logRemove(book.getIsbn());
+        publish(remove(current, book));
+        queryCache.invalidate(book.getTitleKey());
+        awaitDurability();
 
-        return removed;
+        return true;
     }
 
     public boolean updateBook(String isbn, String newTitle, String newAuthor) {
@@ -65,166 +193,756 @@ public class LibraryService {
     }
 
     public boolean updateBook(String isbn, String newTitle, String newAuthor, Integer newYear) {
+        long start = LibraryMetrics.start();
+        try {
+            return applyUpdate(isbn, newTitle, newAuthor, newYear);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.UPDATE, start);
+        }
+    }
+
+    boolean applyUpdate(String isbn, String newTitle, String newAuthor, Integer newYear) {
         if (isbn == null || isbn.trim().isEmpty()) {
             return false;
         }
 
-        Book book = findBookByIsbn(isbn.trim());
+        State current = state;
+        Book book = lookup(current, isbn.trim());
 
         if (book == null) {
             return false;
         }
 
-        boolean updated = false;
+        if (newYear != null && newYear != -1 && (newYear < 0 || newYear > Year.now().getValue())) {
+            throw new IllegalArgumentException("Ano inválido. Deve estar entre 0 e " + Year.now().getValue());
+        }
 
-        if (newTitle != null && !newTitle.trim().isEmpty()) {
-            book.setTitle(newTitle.trim());
-            updated = true;
+        boolean hasTitle = newTitle != null && !newTitle.trim().isEmpty();
+        boolean hasAuthor = newAuthor != null && !newAuthor.trim().isEmpty();
+
+        if (hasTitle) {
+            validateFieldLength(newTitle.trim(), "Título");
+        }
+        if (hasAuthor) {
+            validateFieldLength(newAuthor.trim(), "Autor");
         }
 
-        if (newAuthor != null && !newAuthor.trim().isEmpty()) {
-            book.setAuthor(newAuthor.trim());
-            updated = true;
+        if (!hasTitle && !hasAuthor && newYear == null) {
+            return false;
         }
 
-        if (newYear != null) {
-            if (newYear == -1) {
-                book.setYear(null);
+        Book updatedBook = new Book(
+                hasTitle ? newTitle.trim() : book.getTitle(),
+                hasAuthor ? authors.intern(newAuthor.trim()) : book.getAuthor(),
+                book.getIsbn(),
+                newYear == null ? book.getYear() : (newYear == -1 ? null : newYear));
+
+        logPut(updatedBook);
+        publish(put(current, updatedBook));
+        queryCache.invalidate(book.getTitleKey());
+        queryCache.invalidate(updatedBook.getTitleKey());
+        awaitDurability();
+
+        return true;
+    }
+
+    // Every later change is appended to the log; recover the log before attaching it
+    public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    // Writes the current catalog as the new snapshot and drops the log generations it contains; with a binary
+    // catalog, the service then runs on the rewritten one
+    public void compact() throws IOException {
+        if (writeAheadLog == null) {
+            throw new IllegalStateException("Nenhum log de alterações configurado");
+        }
+
+        if (!writeAheadLog.startCompaction()) {
+            return;
+        }
+
+        State snapshot = state;
+        long generation;
+
+        try {
+            generation = writeAheadLog.rotate();
+        } catch (IOException | RuntimeException e) {
+            writeAheadLog.cancelCompaction();
+            throw e;
+        }
+
+        BookCatalog catalog = writeAheadLog.compact(snapshot.books, generation);
+        if (catalog != null) {
+            rebase(snapshot, catalog);
+        }
+    }
+
+    State currentState() {
+        return state;
+    }
+
+    // Moves the service onto a catalog holding the books of snapshot, an earlier state, and applies again the
+    // changes made since then. A change is new when its entry is not the very object the snapshot had.
+    void rebase(State snapshot, BookCatalog catalog) {
+        State current = state;
+        State next = new State(new Base(catalog), PersistentList.view(catalog), PersistentSortedMap.empty(),
+                BKTree.empty(), PersistentSortedMap.empty());
+
+        List<String> removedIsbns = new ArrayList<>();
+        List<Book> changedBooks = new ArrayList<>();
+
+        current.changes.forEach((isbn, book) -> {
+            if (snapshot.changes.get(isbn) == book) {
+                return;
+            }
+            if (book == REMOVED) {
+                removedIsbns.add(isbn);
             } else {
-                if (newYear < 0 || newYear > Year.now().getValue()) {
-                    throw new IllegalArgumentException("Ano inválido. Deve estar entre 0 e " + Year.now().getValue());
-                }
-                book.setYear(newYear);
+                changedBooks.add(book);
             }
-            updated = true;
+        });
+
+        // A book added before the snapshot and removed after it leaves no entry at all
+        snapshot.changes.forEach((isbn, book) -> {
+            if (!current.changes.containsKey(isbn)) {
+                removedIsbns.add(isbn);
+            }
+        });
+
+        for (String isbn : removedIsbns) {
+            Book book = lookup(next, isbn);
+            if (book != null) {
+                next = remove(next, book);
+            }
+        }
+
+        for (Book book : changedBooks) {
+            next = put(next, book);
         }
 
-        if (updated) {
-            sortBooks();
+        publish(next);
+    }
+
+    // Applies a change read back from the log: the book replaces whatever has the same ISBN
+    void restoreBook(Book book) {
+        Book restoredBook = new Book(book.getTitle(), authors.intern(book.getAuthor()), book.getIsbn(),
+                book.getYear());
+        Book existingBook = lookup(state, book.getIsbn());
+        isbnAllocator.observe(book.getIsbn());
+
+        publish(put(state, restoredBook));
+        if (existingBook != null) {
+            queryCache.invalidate(existingBook.getTitleKey());
         }
+        queryCache.invalidate(restoredBook.getTitleKey());
+    }
+
+    // Applies a removal read back from the log; the ISBN may already be gone from the snapshot
+    void restoreRemoval(String isbn) {
+        Book book = lookup(state, isbn);
+
+        if (book != null) {
+            publish(remove(state, book));
+            queryCache.invalidate(book.getTitleKey());
+        }
+    }
 
-        return updated;
+    // ConcurrentLibraryService waits for the log outside its lock, so writers share the same flush
+    void deferDurability() {
+        this.deferDurability = true;
+    }
+
+    long lastLogSequence() {
+        return lastLogSequence;
+    }
+
+    public QueryCache.Statistics getQueryCacheStatistics() {
+        return queryCache.statistics();
     }
 
     public List<Book> searchBooksByTitle(String title) {
+        long start = LibraryMetrics.start();
+        try {
+            return findByTitle(title);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    List<Book> findByTitle(String title) {
         if (title == null || title.trim().isEmpty()) {
             return new ArrayList<>();
         }
 
-        return BinarySearch.search(books, title.trim());
+        String key = Book.normalizeKey(title.trim());
+        List<Book> cached = queryCache.get(key);
+
+        // Callers get their own copy, as they did before the cache, so changing it can't touch the cached result
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+
+        // Read before the state: a writer publishes its state before starting a new generation, so a result
+        // from an older state can't be cached as current
+        long generation = queryCache.generation();
+        State current = state;
+        List<Book> results = BinarySearch.searchExact(current.books, title.trim());
+        boolean exact = !results.isEmpty();
+
+        if (results.isEmpty()) {
+            results = searchFuzzy(current, key, FUZZY_MAX_DISTANCE, FUZZY_LIMIT);
+        }
+
+        if (results.isEmpty()) {
+            results = BinarySearch.searchNeighbors(current.books, title.trim());
+        }
+
+        queryCache.put(key, results, exact, generation);
+        return new ArrayList<>(results);
+    }
+
+    public List<Book> searchBooksByTitleFuzzy(String title, int maxDistance, int limit) {
+        long start = LibraryMetrics.start();
+        try {
+            return findByTitleFuzzy(title, maxDistance, limit);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    List<Book> findByTitleFuzzy(String title, int maxDistance, int limit) {
+        if (title == null || title.trim().isEmpty() || maxDistance < 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        return searchFuzzy(state, Book.normalizeKey(title.trim()), maxDistance, limit);
+    }
+
+    public List<Book> searchBooksByTitlePrefix(String prefix, int offset, int limit) {
+        long start = LibraryMetrics.start();
+        try {
+            return findByTitlePrefix(prefix, offset, limit);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    List<Book> findByTitlePrefix(String prefix, int offset, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return BinarySearch.searchByPrefix(state.books, prefix.trim(), offset, limit);
+    }
+
+    public int countBooksByTitlePrefix(String prefix) {
+        long start = LibraryMetrics.start();
+        try {
+            return BinarySearch.countByPrefix(state.books, prefix);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    public List<Book> searchBooksByWords(String query, boolean matchAllWords) {
+        long start = LibraryMetrics.start();
+        try {
+            return findByWords(query, matchAllWords);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    List<Book> findByWords(String query, boolean matchAllWords) {
+        if (query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        State current = state;
+        List<Book> catalogBooks = new ArrayList<>();
+        PostingList rows = current.base.wordIndex().search(query, matchAllWords);
+
+        // Catalog rows are in title order already; only the changed books need sorting before the merge
+        for (int i = 0; i < rows.size(); i++) {
+            Book book = current.visibleRow(rows.get(i));
+            if (book != null) {
+                catalogBooks.add(book);
+            }
+        }
+
+        List<Book> changedBooks = searchChangedWords(current, query, matchAllWords);
+        MergeSort.sortBy(changedBooks, MergeSort.SortBy.TITLE);
+        return MergeSort.mergeSorted(catalogBooks, changedBooks, MergeSort.SortBy.TITLE);
     }
 
     public Book findBookByIsbn(String isbn) {
+        long start = LibraryMetrics.start();
+        try {
+            return lookupIsbn(isbn);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.FIND_BY_ISBN, start);
+        }
+    }
+
+    Book lookupIsbn(String isbn) {
         if (isbn == null || isbn.trim().isEmpty()) {
             return null;
         }
 
-        for (Book book : books) {
-            if (book.getIsbn().equals(isbn.trim())) {
-                return book;
+        return lookup(state, isbn.trim());
+    }
+
+    public List<Book> listAllBooksSortedBy(MergeSort.SortBy sortBy) {
+        long start = LibraryMetrics.start();
+        try {
+            return sortedView(sortBy);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.LIST, start);
+        }
+    }
+
+    // Other orders build every Book once and are kept with the state they were sorted from
+    List<Book> sortedView(MergeSort.SortBy sortBy) {
+        State current = state;
+
+        if (sortBy == MergeSort.SortBy.TITLE) {
+            return current.books;
+        }
+
+        List<Book> view = current.sortedViews.get(sortBy);
+
+        if (view == null) {
+            Book[] sortedBooks = current.books.toArray(new Book[0]);
+
+            if (sortBy == MergeSort.SortBy.AUTHOR) {
+                sortByAuthorRank(sortedBooks);
+            } else {
+                MergeSort.sortBy(sortedBooks, sortBy, true);
             }
+
+            view = Collections.unmodifiableList(Arrays.asList(sortedBooks));
+            current.sortedViews.put(sortBy, view);
         }
 
-        return null;
+        return view;
     }
 
-    public List<Book> listAllBooksSortedBy(MergeSort.SortBy sortBy) {
-        List<Book> sortedBooks = new ArrayList<>(books);
-        MergeSort.sortBy(sortedBooks, sortBy);
-        return sortedBooks;
+    public int getTotalBooks() {
+        return state.books.size();
     }
 
-    public int getTotalBooks() {
-        return books.size();
+    public ColumnarCatalog toColumnarCatalog() {
+        return ColumnarCatalog.of(state.books);
     }
 
     public boolean isbnExists(String isbn) {
-        return findBookByIsbn(isbn) != null;
+        long start = LibraryMetrics.start();
+        try {
+            return containsIsbn(isbn);
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.FIND_BY_ISBN, start);
+        }
     }
 
-    private void sortBooks() {
-        MergeSort.sortBy(books, MergeSort.SortBy.TITLE);
+    // Untimed, so the checks made inside a change don't show up as FIND_BY_ISBN in the metrics
+    boolean containsIsbn(String isbn) {
+        return isbn != null && !isbn.trim().isEmpty() && lookup(state, isbn.trim()) != null;
     }
 
-    private String generateUniqueIsbn() {
-        String isbn;
+    private void validateBook(String title, String author, Integer year) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Título não pode ser vazio");
+        }
 
-        do {
-            String uuid = UUID.randomUUID().toString().replaceAll("-", "");
-            StringBuilder isbnBuilder = new StringBuilder();
+        if (author == null || author.trim().isEmpty()) {
+            throw new IllegalArgumentException("Autor não pode ser vazio");
+        }
 
-            for (char c : uuid.toCharArray()) {
-                if (Character.isDigit(c)) {
-                    isbnBuilder.append(c);
-                    if (isbnBuilder.length() == 13) {
-                        break;
-                    }
+        if (year != null && (year < 0 || year > Year.now().getValue())) {
+            throw new IllegalArgumentException("Ano inválido. Deve estar entre 0 e " + Year.now().getValue());
+        }
+
+        validateFieldLength(title.trim(), "Título");
+        validateFieldLength(author.trim(), "Autor");
+    }
+
+    // The log stores each field in modified UTF-8 with a 16-bit length, so a longer field could never be logged
+    private static void validateFieldLength(String value, String field) {
+        int length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c != 0 && c < 0x80 ? 1 : (c < 0x800 ? 2 : 3);
+        }
+
+        if (length > MAX_FIELD_BYTES) {
+            throw new IllegalArgumentException(field + " muito longo: limite de " + MAX_FIELD_BYTES + " bytes");
+        }
+    }
+
+    // The books are already in title order, so a stable counting sort on the author's alphabetical
+    // rank gives the same result as MergeSort by author without comparing a single string
+    private static void sortByAuthorRank(Book[] sortedBooks) {
+        AuthorDictionary dictionary = new AuthorDictionary();
+        int[] ids = new int[sortedBooks.length];
+
+        for (int i = 0; i < sortedBooks.length; i++) {
+            ids[i] = dictionary.idOf(sortedBooks[i].getAuthor());
+        }
+
+        int[] ranks = dictionary.ranks();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ranks[ids[i]];
+        }
+
+        CountingSort.sortByKeys(sortedBooks, ids, dictionary.rankCount());
+    }
+
+    private static Book lookup(State current, String isbn) {
+        Book changed = current.changes.get(isbn);
+
+        if (changed != null) {
+            return changed == REMOVED ? null : changed;
+        }
+
+        BookCatalog catalog = current.base.catalog;
+        int row = catalog.rowOf(isbn);
+        return row < 0 ? null : catalog.get(row);
+    }
+
+    // The book replaces whatever has the same ISBN
+    private static State put(State current, Book book) {
+        Book existing = lookup(current, book.getIsbn());
+        PersistentList<Book> books = current.books;
+        BKTree<Book> changedTitles = current.changedTitles;
+        PersistentSortedMap<String, PersistentSortedMap<String, Book>> changedWords = current.changedWords;
+
+        if (existing != null) {
+            int index = BinarySearch.indexOf(books, existing);
+
+            if (existing.getTitleKey().equals(book.getTitleKey())) {
+                books = books.replace(index, book);
+            } else {
+                books = insertSorted(books.removeAt(index), book);
+            }
+
+            if (current.changes.containsKey(existing.getIsbn())) {
+                changedTitles = changedTitles.remove(existing.getTitleKey(), existing);
+                changedWords = removeWords(changedWords, existing);
+            }
+        } else {
+            books = insertSorted(books, book);
+        }
+
+        return new State(current.base, books, current.changes.put(book.getIsbn(), book),
+                changedTitles.add(book.getTitleKey(), book), addWords(changedWords, book));
+    }
+
+    // A book of the catalog stays in the changes as REMOVED, since its row is still in the catalog indexes
+    private static State remove(State current, Book book) {
+        PersistentSortedMap<String, Book> changes = current.changes;
+        BKTree<Book> changedTitles = current.changedTitles;
+        PersistentSortedMap<String, PersistentSortedMap<String, Book>> changedWords = current.changedWords;
+
+        if (changes.containsKey(book.getIsbn())) {
+            changedTitles = changedTitles.remove(book.getTitleKey(), book);
+            changedWords = removeWords(changedWords, book);
+        }
+
+        if (current.base.catalog.rowOf(book.getIsbn()) >= 0) {
+            changes = changes.put(book.getIsbn(), REMOVED);
+        } else {
+            changes = changes.remove(book.getIsbn());
+        }
+
+        PersistentList<Book> books = current.books.removeAt(BinarySearch.indexOf(current.books, book));
+        return new State(current.base, books, changes, changedTitles, changedWords);
+    }
+
+    private static PersistentList<Book> insertSorted(PersistentList<Book> books, Book book) {
+        return books.insert(BinarySearch.upperBound(books, book.getTitleKey()), book);
+    }
+
+    private static PersistentSortedMap<String, PersistentSortedMap<String, Book>> addWords(
+            PersistentSortedMap<String, PersistentSortedMap<String, Book>> words, Book book) {
+        for (String word : WordIndex.wordsOf(book)) {
+            PersistentSortedMap<String, Book> books = words.get(word);
+            if (books == null) {
+                books = PersistentSortedMap.empty();
+            }
+            words = words.put(word, books.put(book.getIsbn(), book));
+        }
+        return words;
+    }
+
+    private static PersistentSortedMap<String, PersistentSortedMap<String, Book>> removeWords(
+            PersistentSortedMap<String, PersistentSortedMap<String, Book>> words, Book book) {
+        for (String word : WordIndex.wordsOf(book)) {
+            PersistentSortedMap<String, Book> books = words.get(word);
+            if (books != null) {
+                books = books.remove(book.getIsbn());
+                words = books.isEmpty() ? words.remove(word) : words.put(word, books);
+            }
+        }
+        return words;
+    }
+
+    // Catalog matches and changed books at the same distance come before any match further away
+    private static List<Book> searchFuzzy(State current, String key, int maxDistance, int limit) {
+        List<List<Integer>> catalogMatches = current.base.titleTree().searchByDistance(key, maxDistance);
+        List<List<Book>> changedMatches = current.changedTitles.searchByDistance(key, maxDistance);
+        List<Book> results = new ArrayList<>();
+
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            for (Integer row : catalogMatches.get(distance)) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                Book book = current.visibleRow(row);
+                if (book != null) {
+                    results.add(book);
                 }
             }
 
-            while (isbnBuilder.length() < 13) {
-                isbnBuilder.append((int) (Math.random() * 10));
+            for (Book book : changedMatches.get(distance)) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                results.add(book);
             }
+        }
 
-            isbn = isbnBuilder.toString();
+        return results;
+    }
 
-        } while (isbnExists(isbn));
+    private static List<Book> searchChangedWords(State current, String query, boolean matchAllWords) {
+        Map<String, Book> matches = null;
 
-        return isbn;
+        for (String word : WordIndex.tokenize(Book.normalizeKey(query))) {
+            PersistentSortedMap<String, Book> books = current.changedWords.get(word);
+
+            if (books == null) {
+                if (matchAllWords) {
+                    return new ArrayList<>();
+                }
+                continue;
+            }
+
+            if (matches == null) {
+                matches = new HashMap<>();
+                books.forEach(matches::put);
+            } else if (matchAllWords) {
+                matches.keySet().removeIf(isbn -> !books.containsKey(isbn));
+            } else {
+                books.forEach(matches::put);
+            }
+        }
+
+        return matches == null ? new ArrayList<>() : new ArrayList<>(matches.values());
+    }
+
+    private void publish(State next) {
+        state = next;
+    }
+
+    private void logPut(Book book) {
+        if (writeAheadLog != null) {
+            lastLogSequence = writeAheadLog.logPut(book);
+        }
+    }
+
+    private void logRemove(String isbn) {
+        if (writeAheadLog != null) {
+            lastLogSequence = writeAheadLog.logRemove(isbn);
+        }
+    }
+
+    private void awaitDurability() {
+        if (writeAheadLog == null || deferDurability) {
+            return;
+        }
+
+        writeAheadLog.awaitDurable(lastLogSequence);
+
+        if (writeAheadLog.shouldCompact()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Erro ao compactar o log de alterações: " + e.getMessage());
+            }
+        }
     }
 
     public String getStatistics() {
+        long start = LibraryMetrics.start();
+        try {
+            return buildStatistics();
+        } finally {
+            LibraryMetrics.record(LibraryMetrics.Operation.STATISTICS, start);
+        }
+    }
+
+    String buildStatistics() {
+        State current = state;
+        List<Book> books = current.books;
         StringBuilder stats = new StringBuilder();
         stats.append("=== ESTATÍSTICAS DA BIBLIOTECA ===\n");
-        stats.append("Total de livros: ").append(getTotalBooks()).append("\n");
+        stats.append("Total de livros: ").append(books.size()).append("\n");
 
         if (!books.isEmpty()) {
             stats.append("Primeiro livro (alfabeticamente): ").append(books.get(0).getTitle()).append("\n");
             stats.append("Último livro (alfabeticamente): ").append(books.get(books.size() - 1).getTitle())
                     .append("\n");
 
-            AuthorCount topAuthor = getAuthorWithMostBooks();
-            if (topAuthor != null) {
-                stats.append("Autor com mais livros: ").append(topAuthor.author)
-                        .append(" (").append(topAuthor.count).append(" livros)\n");
+            for (Map.Entry<String, Integer> topAuthor : current.statistics().topAuthors(1).entrySet()) {
+                stats.append("Autor com mais livros: ").append(topAuthor.getKey())
+                        .append(" (").append(topAuthor.getValue()).append(" livros)\n");
             }
         }
 
         return stats.toString();
     }
 
-    private AuthorCount getAuthorWithMostBooks() {
-        if (books.isEmpty()) {
-            return null;
+    public Map<String, Integer> getTopAuthors(int limit) {
+        return state.statistics().topAuthors(limit);
+    }
+
+    public Map<String, Integer> getBooksPerAuthor() {
+        return state.statistics().booksPerAuthor();
+    }
+
+    public SortedMap<Integer, Integer> getBooksPerYear() {
+        return state.statistics().booksPerYear();
+    }
+
+    public int getBooksWithoutYear() {
+        return state.statistics().booksWithoutYear();
+    }
+
+    // The catalog the service started from, which never changes, and what is derived from it alone: the search
+    // indexes over its rows and its counts, each built the first time a call needs it. Readers of
+    // ConcurrentLibraryService may get here together, hence the lock.
+    private static final class Base {
+        final BookCatalog catalog;
+        private volatile BKTree<Integer> titleTree;
+        private volatile WordIndex wordIndex;
+        private volatile LibraryStatistics statistics;
+
+        Base(BookCatalog catalog) {
+            this.catalog = catalog;
         }
 
-        Map<String, Integer> authorCounts = new HashMap<>();
+        BKTree<Integer> titleTree() {
+            BKTree<Integer> tree = titleTree;
+
+            if (tree == null) {
+                synchronized (this) {
+                    tree = titleTree;
+                    if (tree == null) {
+                        BKTree.Builder<Integer> builder = new BKTree.Builder<>();
+                        for (int row = 0; row < catalog.size(); row++) {
+                            builder.add(catalog.get(row).getTitleKey(), row);
+                        }
+                        tree = builder.build();
+                        titleTree = tree;
+                    }
+                }
+            }
 
-        for (Book book : books) {
-            String author = book.getAuthor();
-            authorCounts.put(author, authorCounts.getOrDefault(author, 0) + 1);
+            return tree;
         }
 
-        int maxCount = 0;
-        String topAuthor = null;
+        WordIndex wordIndex() {
+            WordIndex index = wordIndex;
 
-        for (Map.Entry<String, Integer> entry : authorCounts.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                topAuthor = entry.getKey();
+            if (index == null) {
+                synchronized (this) {
+                    index = wordIndex;
+                    if (index == null) {
+                        index = new WordIndex(catalog);
+                        wordIndex = index;
+                    }
+                }
             }
+
+            return index;
         }
 
-        return new AuthorCount(topAuthor, maxCount);
+        LibraryStatistics statistics() {
+            LibraryStatistics counts = statistics;
+
+            if (counts == null) {
+                synchronized (this) {
+                    counts = statistics;
+                    if (counts == null) {
+                        counts = LibraryStatistics.of(catalog);
+                        statistics = counts;
+                    }
+                }
+            }
+
+            return counts;
+        }
     }
 
-    private static class AuthorCount {
-        String author;
-        int count;
+    // One version of the library. books holds every book in title order: slices of the catalog plus the changed
+    // books. changes maps the ISBN of every book added, updated or removed since the catalog to its current
+    // version (REMOVED if it was deleted); changedTitles and changedWords index those books, since the catalog
+    // indexes only know the rows.
+    static final class State {
+        final Base base;
+        final PersistentList<Book> books;
+        final PersistentSortedMap<String, Book> changes;
+        final BKTree<Book> changedTitles;
+        final PersistentSortedMap<String, PersistentSortedMap<String, Book>> changedWords;
+        final Map<MergeSort.SortBy, List<Book>> sortedViews = new ConcurrentHashMap<>();
+        private volatile LibraryStatistics statistics;
+
+        State(Base base, PersistentList<Book> books, PersistentSortedMap<String, Book> changes,
+                BKTree<Book> changedTitles,
+                PersistentSortedMap<String, PersistentSortedMap<String, Book>> changedWords) {
+            this.base = base;
+            this.books = books;
+            this.changes = changes;
+            this.changedTitles = changedTitles;
+            this.changedWords = changedWords;
+        }
+
+        // The book of a catalog row, or null if it was changed since; its current version is in changes
+        Book visibleRow(int row) {
+            if (!changes.isEmpty() && changes.containsKey(base.catalog.isbnOf(row))) {
+                return null;
+            }
+            return base.catalog.get(row);
+        }
+
+        LibraryStatistics statistics() {
+            if (changes.isEmpty()) {
+                return base.statistics();
+            }
+
+            LibraryStatistics counts = statistics;
+
+            if (counts == null) {
+                List<Book> removedBooks = new ArrayList<>();
+                List<Book> addedBooks = new ArrayList<>();
+
+                changes.forEach((isbn, book) -> {
+                    int row = base.catalog.rowOf(isbn);
+                    if (row >= 0) {
+                        removedBooks.add(base.catalog.get(row));
+                    }
+                    if (book != REMOVED) {
+                        addedBooks.add(book);
+                    }
+                });
+
+                counts = base.statistics().with(removedBooks, addedBooks);
+                statistics = counts;
+            }
 
-        AuthorCount(String author, int count) {
-            this.author = author;
-            this.count = count;
+            return counts;
         }
     }
 }
@@ -0,0 +1,116 @@
+package service;
+
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Counts of one version of the library. A catalog is counted once from its columns; a version with changes copies
+// the counts of its catalog and corrects them for the changed books.
+class LibraryStatistics {
+
+    private final Map<String, Integer> booksPerAuthor;
+    private final SortedMap<Integer, Integer> booksPerYear;
+    private final int booksWithoutYear;
+    private volatile List<String> authorsByCount;
+
+    private LibraryStatistics(Map<String, Integer> booksPerAuthor, SortedMap<Integer, Integer> booksPerYear,
+            int booksWithoutYear) {
+        this.booksPerAuthor = Collections.unmodifiableMap(booksPerAuthor);
+        this.booksPerYear = Collections.unmodifiableSortedMap(booksPerYear);
+        this.booksWithoutYear = booksWithoutYear;
+    }
+
+    static LibraryStatistics of(BookCatalog catalog) {
+        int[] authorCounts = new int[catalog.authorCount()];
+        TreeMap<Integer, Integer> yearCounts = new TreeMap<>();
+        int withoutYear = 0;
+
+        for (int row = 0; row < catalog.size(); row++) {
+            authorCounts[catalog.authorIdOf(row)]++;
+
+            Integer year = catalog.yearOf(row);
+            if (year == null) {
+                withoutYear++;
+            } else {
+                yearCounts.merge(year, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Integer> perAuthor = new HashMap<>();
+        for (int id = 0; id < authorCounts.length; id++) {
+            if (authorCounts[id] > 0) {
+                perAuthor.merge(catalog.authorName(id), authorCounts[id], Integer::sum);
+            }
+        }
+
+        return new LibraryStatistics(perAuthor, yearCounts, withoutYear);
+    }
+
+    LibraryStatistics with(List<Book> removedBooks, List<Book> addedBooks) {
+        Map<String, Integer> perAuthor = new HashMap<>(booksPerAuthor);
+        TreeMap<Integer, Integer> perYear = new TreeMap<>(booksPerYear);
+        int withoutYear = booksWithoutYear;
+
+        for (Book book : removedBooks) {
+            perAuthor.computeIfPresent(book.getAuthor(), (author, count) -> count == 1 ? null : count - 1);
+
+            if (book.getYear() == null) {
+                withoutYear--;
+            } else {
+                perYear.computeIfPresent(book.getYear(), (year, count) -> count == 1 ? null : count - 1);
+            }
+        }
+
+        for (Book book : addedBooks) {
+            perAuthor.merge(book.getAuthor(), 1, Integer::sum);
+
+            if (book.getYear() == null) {
+                withoutYear++;
+            } else {
+                perYear.merge(book.getYear(), 1, Integer::sum);
+            }
+        }
+
+        return new LibraryStatistics(perAuthor, perYear, withoutYear);
+    }
+
+    // Most books first; authors with the same count in alphabetical order
+    Map<String, Integer> topAuthors(int limit) {
+        List<String> ranking = authorsByCount;
+
+        if (ranking == null) {
+            ranking = new ArrayList<>(booksPerAuthor.keySet());
+            ranking.sort((first, second) -> {
+                int byCount = Integer.compare(booksPerAuthor.get(second), booksPerAuthor.get(first));
+                return byCount != 0 ? byCount : first.compareTo(second);
+            });
+            authorsByCount = ranking;
+        }
+
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(Math.max(0, limit), ranking.size()); i++) {
+            top.put(ranking.get(i), booksPerAuthor.get(ranking.get(i)));
+        }
+
+        return top;
+    }
+
+    Map<String, Integer> booksPerAuthor() {
+        return booksPerAuthor;
+    }
+
+    SortedMap<Integer, Integer> booksPerYear() {
+        return booksPerYear;
+    }
+
+    int booksWithoutYear() {
+        return booksWithoutYear;
+    }
+}
@@ -0,0 +1,408 @@
+package service;
+
+import algorithm.MergeSort;
+import model.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary catalog read straight from a memory-mapped file, so the books live in the page cache instead of the heap
+// and opening it reads nothing but the header.
+// Layout: header | records (fixed width, in title order) | rows sorted by ISBN | string heap | author table
+// The ISBN index lists the rows with a numeric ISBN first, by value, then the others by text. Each author is
+// written once; records refer to it by id, and the author table holds the heap offset of each id.
+public class MappedCatalog extends AbstractList<Book> implements BookCatalog {
+
+    private static final int MAGIC = 0x424B4354;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_SIZE = 24;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    private static final int MAX_STRING_BYTES = (1 << 16) - Integer.BYTES;
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_OVERLAP = 1L << 16;
+
+    private final MappedByteBuffer[] segments;
+    private final int size;
+    private final int numericIsbns;
+    private final int authorCount;
+    private final long indexOffset;
+    private final long authorTableOffset;
+
+    private MappedCatalog(MappedByteBuffer[] segments, int size, int numericIsbns, int authorCount, long indexOffset,
+            long authorTableOffset) {
+        this.segments = segments;
+        this.size = size;
+        this.numericIsbns = numericIsbns;
+        this.authorCount = authorCount;
+        this.indexOffset = indexOffset;
+        this.authorTableOffset = authorTableOffset;
+    }
+
+    // The mapping stays valid after the channel is closed, and after the file is replaced by a newer catalog
+    public static MappedCatalog open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int segmentCount = (int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[Math.max(1, segmentCount)];
+
+            // Each segment overlaps the next one, so any field or string that starts in a segment ends in it too
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                long length = Math.min(fileSize - start, SEGMENT_SIZE + SEGMENT_OVERLAP);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+            }
+
+            if (fileSize < HEADER_SIZE || segments[0].getInt(0) != MAGIC) {
+                throw new IOException("Arquivo de catálogo inválido: " + path);
+            }
+            if (segments[0].getInt(4) != VERSION) {
+                throw new IOException("Versão de catálogo não suportada: " + segments[0].getInt(4));
+            }
+
+            int size = segments[0].getInt(8);
+            int numericIsbns = segments[0].getInt(12);
+            int authorCount = segments[0].getInt(16);
+            long indexOffset = segments[0].getLong(24);
+            long authorTableOffset = segments[0].getLong(32);
+
+            if (indexOffset != HEADER_SIZE + (long) size * RECORD_SIZE || numericIsbns < 0 || numericIsbns > size
+                    || authorCount < 0 || authorTableOffset + (long) authorCount * Long.BYTES != fileSize) {
+                throw new IOException("Arquivo de catálogo corrompido: " + path);
+            }
+
+            return new MappedCatalog(segments, size, numericIsbns, authorCount, indexOffset, authorTableOffset);
+        }
+    }
+
+    // Writes the books in one pass, holding only their ISBNs and the distinct authors. A list that isn't in title
+    // order (or may not be) goes through a ColumnarCatalog first, which sorts it and drops repeated ISBNs. The file
+    // is written next to the target and moved over it, so a reader never sees half a catalog.
+    public static void write(List<Book> books, Path path) throws IOException {
+        List<Book> sortedBooks = books instanceof BookCatalog || isSortedByTitle(books)
+                ? books : ColumnarCatalog.of(books);
+
+        Path target = path.toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        int size = sortedBooks.size();
+        long indexOffset = HEADER_SIZE + (long) size * RECORD_SIZE;
+        long heapOffset = indexOffset + (long) size * Integer.BYTES;
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                FileChannel heapChannel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+
+            DataOutputStream records = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            DataOutputStream heap = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(heapChannel.position(heapOffset)), 1 << 16));
+
+            // The header is written last, once the author table's place is known
+            records.write(new byte[HEADER_SIZE]);
+
+            Map<String, Integer> authorIds = new HashMap<>();
+            List<Long> authorOffsets = new ArrayList<>();
+            long heapPosition = heapOffset;
+            long[] isbnKeys = new long[size];
+            Map<Integer, String> otherIsbns = new HashMap<>();
+
+            int row = 0;
+            for (Book book : sortedBooks) {
+                long titleOffset = heapPosition;
+                heapPosition += writeString(heap, book.getTitle());
+
+                Integer authorId = authorIds.get(book.getAuthor());
+                if (authorId == null) {
+                    authorId = authorOffsets.size();
+                    authorIds.put(book.getAuthor(), authorId);
+                    authorOffsets.add(heapPosition);
+                    heapPosition += writeString(heap, book.getAuthor());
+                }
+
+                long isbn = IsbnKeys.toKey(book.getIsbn());
+                isbnKeys[row] = isbn;
+                if (isbn == IsbnKeys.NONE) {
+                    otherIsbns.put(row, book.getIsbn());
+                    isbn = -(heapPosition + 1);
+                    heapPosition += writeString(heap, book.getIsbn());
+                }
+
+                records.writeLong(titleOffset);
+                records.writeLong(isbn);
+                records.writeInt(authorId);
+                records.writeInt(book.getYear() == null ? NO_YEAR : book.getYear());
+                row++;
+            }
+
+            int[] numericRows = ColumnarCatalog.sortRowsByIsbn(isbnKeys, size);
+            for (int i = 0; i < numericRows.length; i++) {
+                if (i > 0 && isbnKeys[numericRows[i]] == isbnKeys[numericRows[i - 1]]) {
+                    throw new IllegalArgumentException("ISBN repetido no catálogo: "
+                            + IsbnKeys.format(isbnKeys[numericRows[i]]));
+                }
+                records.writeInt(numericRows[i]);
+            }
+            for (int otherRow : sortOtherIsbns(otherIsbns)) {
+                records.writeInt(otherRow);
+            }
+
+            long authorTableOffset = heapPosition;
+            for (long authorOffset : authorOffsets) {
+                heap.writeLong(authorOffset);
+            }
+
+            records.flush();
+            heap.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(numericRows.length).putInt(authorOffsets.size())
+                    .putInt(0).putLong(indexOffset).putLong(authorTableOffset).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            heapChannel.force(true);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        BookApiService.forceDirectory(target.getParent());
+    }
+
+    // The CSV is read into a ColumnarCatalog, never into a list of Book objects
+    public static int convertCsv(Path csvPath, Path catalogPath) throws IOException {
+        ColumnarCatalog catalog = ColumnarCatalog.fromCsv(csvPath);
+        write(catalog, catalogPath);
+        return catalog.size();
+    }
+
+    @Override
+    public Book get(int row) {
+        checkRow(row);
+        long record = HEADER_SIZE + (long) row * RECORD_SIZE;
+        return new Book(readString(readLong(record)), authorName(readInt(record + 16)), isbnOf(row), yearOf(row));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int rowOf(String isbn) {
+        long key = IsbnKeys.toKey(isbn);
+
+        if (key != IsbnKeys.NONE) {
+            int index = isbnLowerBound(key, 0, numericIsbns);
+            return index < numericIsbns && isbnKeyOf(rowAt(index)) == key ? rowAt(index) : -1;
+        }
+
+        if (isbn == null) {
+            return -1;
+        }
+
+        int left = numericIsbns;
+        int right = size - 1;
+
+        while (left <= right) {
+            int middle = left + (right - left) / 2;
+            int comparison = isbnOf(rowAt(middle)).compareTo(isbn);
+
+            if (comparison == 0) {
+                return rowAt(middle);
+            } else if (comparison < 0) {
+                left = middle + 1;
+            } else {
+                right = middle - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public String isbnOf(int row) {
+        checkRow(row);
+        long isbn = isbnKeyOf(row);
+        return isbn < 0 ? readString(-isbn - 1) : IsbnKeys.format(isbn);
+    }
+
+    @Override
+    public Integer yearOf(int row) {
+        checkRow(row);
+        int year = readInt(HEADER_SIZE + (long) row * RECORD_SIZE + 20);
+        return year == NO_YEAR ? null : year;
+    }
+
+    @Override
+    public int authorIdOf(int row) {
+        checkRow(row);
+        return readInt(HEADER_SIZE + (long) row * RECORD_SIZE + 16);
+    }
+
+    @Override
+    public int authorCount() {
+        return authorCount;
+    }
+
+    @Override
+    public String authorName(int authorId) {
+        if (authorId < 0 || authorId >= authorCount) {
+            throw new IndexOutOfBoundsException("Id: " + authorId + ", Tamanho: " + authorCount);
+        }
+        return readString(readLong(authorTableOffset + (long) authorId * Long.BYTES));
+    }
+
+    @Override
+    public List<String> isbnsWithPrefix(String digits) {
+        long[] range = IsbnKeys.rangeOf(digits);
+
+        if (range == null) {
+            return Collections.emptyList();
+        }
+
+        int from = isbnLowerBound(range[0], 0, numericIsbns);
+        int to = isbnLowerBound(range[1], from, numericIsbns);
+
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return IsbnKeys.format(isbnKeyOf(rowAt(from + index)));
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    public Book findBookByIsbn(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return null;
+        }
+
+        int row = rowOf(isbn.trim());
+        return row < 0 ? null : get(row);
+    }
+
+    private static boolean isSortedByTitle(List<Book> books) {
+        String previous = null;
+
+        for (Book book : books) {
+            if (previous != null && previous.compareTo(book.getTitleKey()) > 0) {
+                return false;
+            }
+            previous = book.getTitleKey();
+        }
+
+        return true;
+    }
+
+    private static int[] sortOtherIsbns(Map<Integer, String> otherIsbns) {
+        int[] rows = new int[otherIsbns.size()];
+        String[] isbns = new String[rows.length];
+        int[] order = new int[rows.length];
+        int count = 0;
+
+        for (Map.Entry<Integer, String> entry : otherIsbns.entrySet()) {
+            rows[count] = entry.getKey();
+            isbns[count] = entry.getValue();
+            order[count] = count;
+            count++;
+        }
+
+        MergeSort.sortIndexes(order, isbns);
+
+        int[] sortedRows = new int[rows.length];
+        for (int i = 0; i < order.length; i++) {
+            if (i > 0 && isbns[order[i]].equals(isbns[order[i - 1]])) {
+                throw new IllegalArgumentException("ISBN repetido no catálogo: " + isbns[order[i]]);
+            }
+            sortedRows[i] = rows[order[i]];
+        }
+
+        return sortedRows;
+    }
+
+    private int isbnLowerBound(long key, int from, int to) {
+        int left = from;
+        int right = to;
+
+        while (left < right) {
+            int middle = left + (right - left) / 2;
+
+            if (isbnKeyOf(rowAt(middle)) < key) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+
+        return left;
+    }
+
+    private int rowAt(int index) {
+        return readInt(indexOffset + (long) index * Integer.BYTES);
+    }
+
+    private long isbnKeyOf(int row) {
+        return readLong(HEADER_SIZE + (long) row * RECORD_SIZE + 8);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Índice: " + row + ", Tamanho: " + size);
+        }
+    }
+
+    private static int writeString(DataOutputStream heap, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Texto muito longo para o catálogo: " + bytes.length + " bytes");
+        }
+
+        heap.writeInt(bytes.length);
+        heap.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private String readString(long position) {
+        int length = readInt(position);
+        ByteBuffer segment = segments[(int) ((position + Integer.BYTES) >>> SEGMENT_BITS)].duplicate();
+        segment.position((int) ((position + Integer.BYTES) & (SEGMENT_SIZE - 1)));
+
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readInt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private long readLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+}
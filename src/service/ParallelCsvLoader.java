@@ -0,0 +1,172 @@
+package service;
+
+import model.Book;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+class ParallelCsvLoader {
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 28;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    static List<Book> load(Path path, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Paralelismo deve ser maior que zero");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart;
+
+            try (CsvBookReader header = new CsvBookReader(channel, 0, size)) {
+                header.skipRecord();
+                dataStart = header.filePosition();
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                long[] boundaries = findRecordBoundaries(channel, pool, dataStart, size, parallelism);
+
+                List<Callable<List<Book>>> tasks = new ArrayList<>();
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    long start = boundaries[i];
+                    long end = boundaries[i + 1];
+                    if (start < end) {
+                        tasks.add(() -> parseChunk(channel, start, end));
+                    }
+                }
+
+                List<Book> books = new ArrayList<>();
+                for (List<Book> chunk : invokeAll(pool, tasks)) {
+                    books.addAll(chunk);
+                }
+                return books;
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Cuts [start, end) into line-aligned chunks. Each raw segment first counts its quotes in parallel;
+    // the running parity tells whether a segment begins inside a quoted field, so every chunk can then
+    // look for the first newline that really ends a record.
+    private static long[] findRecordBoundaries(FileChannel channel, ForkJoinPool pool, long start, long end,
+            int parallelism) throws IOException {
+        long length = end - start;
+        long segmentCount = Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, length / MIN_CHUNK_SIZE));
+        segmentCount = Math.max(segmentCount, (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        int segments = (int) segmentCount;
+        long[] rawStarts = new long[segments + 1];
+        for (int i = 0; i <= segments; i++) {
+            rawStarts[i] = start + length * i / segments;
+        }
+
+        List<Callable<Boolean>> parityTasks = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            long segmentStart = rawStarts[i];
+            long segmentEnd = rawStarts[i + 1];
+            parityTasks.add(() -> hasOddQuoteCount(channel, segmentStart, segmentEnd));
+        }
+        List<Boolean> parities = invokeAll(pool, parityTasks);
+
+        List<Callable<Long>> boundaryTasks = new ArrayList<>();
+        boolean inQuotes = false;
+        for (int i = 1; i < segments; i++) {
+            inQuotes ^= parities.get(i - 1);
+            long segmentStart = rawStarts[i];
+            boolean startsInQuotes = inQuotes;
+            boundaryTasks.add(() -> nextRecordStart(channel, segmentStart, end, startsInQuotes));
+        }
+        List<Long> recordStarts = invokeAll(pool, boundaryTasks);
+
+        long[] boundaries = new long[segments + 1];
+        boundaries[0] = start;
+        for (int i = 1; i < segments; i++) {
+            boundaries[i] = Math.max(boundaries[i - 1], recordStarts.get(i - 1));
+        }
+        boundaries[segments] = end;
+
+        return boundaries;
+    }
+
+    private static boolean hasOddQuoteCount(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        boolean odd = false;
+
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '"') {
+                odd = !odd;
+            }
+        }
+
+        return odd;
+    }
+
+    private static long nextRecordStart(FileChannel channel, long from, long end, boolean inQuotes)
+            throws IOException {
+        long windowStart = from;
+
+        while (windowStart < end) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(MAX_CHUNK_SIZE, end - windowStart));
+
+            for (int i = 0; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return windowStart + i + 1;
+                }
+            }
+
+            windowStart += buffer.limit();
+        }
+
+        return end;
+    }
+
+    private static List<Book> parseChunk(FileChannel channel, long start, long end) throws IOException {
+        List<Book> books = new ArrayList<>();
+
+        try (CsvBookReader reader = new CsvBookReader(channel, start, end)) {
+            Book book;
+            while ((book = reader.next()) != null) {
+                books.add(book);
+            }
+        }
+
+        return books;
+    }
+
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Leitura do CSV interrompida", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Erro ao processar trecho do CSV", e.getCause());
+            }
+        }
+
+        return results;
+    }
+}
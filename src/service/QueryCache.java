@@ -0,0 +1,204 @@
+package service;
+
+import model.Book;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Results of title searches keyed by the normalized query. The cache is split into segments, each an
+// access-ordered LinkedHashMap (LRU) behind its own lock, so concurrent readers rarely wait on each other.
+// Exact-title results only change when a book with that title changes, so they are dropped one by one by
+// invalidate(). Results of the approximate fallbacks depend on the whole catalog and are only valid for the
+// generation they were built in; every change starts a new generation.
+public class QueryCache {
+
+    public static class Statistics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int size;
+        private final long weight;
+
+        Statistics(long hits, long misses, long evictions, long invalidations, int size, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d acertos, %d falhas (%.1f%%), %d consultas em cache, %d removidas por espaço, "
+                    + "%d invalidadas", hits, misses, getHitRate() * 100, size, evictions, invalidations);
+        }
+    }
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private static class Entry {
+        final List<Book> books;
+        final boolean exact;
+        final long generation;
+
+        Entry(List<Book> books, boolean exact, long generation) {
+            this.books = books;
+            this.exact = exact;
+            this.generation = generation;
+        }
+    }
+
+    private static class Segment {
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long weight;
+    }
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final long maxSegmentWeight;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // The weight of an entry is the number of books in it plus one, so many large results can't fill the heap
+    QueryCache(long maxWeight) {
+        this.maxSegmentWeight = Math.max(1, maxWeight / SEGMENT_COUNT);
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    List<Book> get(String key) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+
+        synchronized (segment) {
+            entry = segment.entries.get(key);
+
+            if (entry != null && !entry.exact && entry.generation != generation.get()) {
+                segment.entries.remove(key);
+                segment.weight -= weightOf(entry.books);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.books;
+    }
+
+    // Taken before building a result and passed to put(), which discards the result if anything changed since
+    long generation() {
+        return generation.get();
+    }
+
+    // The list is kept as given, so the caller must not change it afterwards; get() returns it read-only
+    void put(String key, List<Book> books, boolean exact, long builtInGeneration) {
+        List<Book> result = Collections.unmodifiableList(books);
+        long weight = weightOf(result);
+
+        if (weight > maxSegmentWeight) {
+            return;
+        }
+
+        Segment segment = segmentFor(key);
+
+        synchronized (segment) {
+            if (generation.get() != builtInGeneration) {
+                return;
+            }
+
+            Entry previous = segment.entries.put(key, new Entry(result, exact, builtInGeneration));
+            if (previous != null) {
+                segment.weight -= weightOf(previous.books);
+            }
+            segment.weight += weight;
+
+            Iterator<Entry> eldest = segment.entries.values().iterator();
+            while (segment.weight > maxSegmentWeight && eldest.hasNext()) {
+                segment.weight -= weightOf(eldest.next().books);
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // Called after a book with this title key was added, removed or changed
+    void invalidate(String key) {
+        generation.incrementAndGet();
+        Segment segment = segmentFor(key);
+
+        synchronized (segment) {
+            Entry removed = segment.entries.remove(key);
+
+            if (removed != null) {
+                segment.weight -= weightOf(removed.books);
+                invalidations.increment();
+            }
+        }
+    }
+
+    Statistics statistics() {
+        int size = 0;
+        long weight = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size, weight);
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static long weightOf(List<Book> books) {
+        return books.size() + 1L;
+    }
+}
@@ -0,0 +1,73 @@
+package service;
+
+import model.Book;
+import structure.PostingList;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Posting lists of catalog rows for every word of the titles and authors. Built once for a catalog that doesn't
+// change; LibraryService keeps the words of changed books apart.
+class WordIndex {
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    WordIndex(List<Book> books) {
+        for (int row = 0; row < books.size(); row++) {
+            for (String word : wordsOf(books.get(row))) {
+                postings.computeIfAbsent(word, key -> new PostingList()).add(row);
+            }
+        }
+    }
+
+    // Rows with all (or any) of the words of the query, in row order
+    PostingList search(String query, boolean matchAll) {
+        PostingList matches = null;
+
+        for (String word : tokenize(Book.normalizeKey(query))) {
+            PostingList list = postings.get(word);
+
+            if (list == null) {
+                if (matchAll) {
+                    return new PostingList();
+                }
+                continue;
+            }
+
+            if (matches == null) {
+                matches = list;
+            } else {
+                matches = matchAll ? matches.intersect(list) : matches.union(list);
+            }
+        }
+
+        return matches == null ? new PostingList() : matches;
+    }
+
+    static Set<String> wordsOf(Book book) {
+        Set<String> words = tokenize(book.getTitleKey());
+        words.addAll(tokenize(book.getAuthorKey()));
+        return words;
+    }
+
+    static Set<String> tokenize(String normalized) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+}
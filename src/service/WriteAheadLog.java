@@ -0,0 +1,442 @@
+package service;
+
+import model.Book;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+// Append-only log of catalog changes. Each record stores the final state of one ISBN (the whole book, or its
+// removal), so replaying a record twice or onto a newer snapshot gives the same catalog.
+// Record layout: length | CRC32 of the payload | payload.
+// Appends only copy the record into a memory buffer; a single flusher thread writes everything pending and calls
+// force() once per batch (group commit), so concurrent writers share one fsync.
+public class WriteAheadLog implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final long COMPACTION_THRESHOLD = 64L << 20;
+
+    private final Path logPath;
+    private final Path snapshotPath;
+    private final Path catalogPath;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private FileChannel channel;
+    private long generation;
+    private byte[] pending = new byte[1 << 16];
+    private int pendingLength;
+    private byte[] spare = new byte[1 << 16];
+    private long appendedSequence;
+    private long durableSequence;
+    private long bytesSinceRotation;
+    private long compactedGeneration;
+    private boolean writing;
+    private boolean closed;
+    private IOException failure;
+
+    private WriteAheadLog(Path logPath, Path snapshotPath, Path catalogPath) {
+        this.logPath = logPath.toAbsolutePath();
+        this.snapshotPath = snapshotPath.toAbsolutePath();
+        this.catalogPath = catalogPath == null ? null : catalogPath.toAbsolutePath();
+        this.flusher = new Thread(this::flushLoop, "write-ahead-log");
+        this.flusher.setDaemon(true);
+    }
+
+    // Log files are named <logPath>.<generation>; the snapshot is the CSV the catalog is loaded from
+    public static WriteAheadLog open(Path logPath, Path snapshotPath) throws IOException {
+        return open(logPath, snapshotPath, null);
+    }
+
+    // Same, for a service that runs on the binary catalog: compaction rewrites it after the CSV
+    public static WriteAheadLog open(Path logPath, Path snapshotPath, Path catalogPath) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(logPath, snapshotPath, catalogPath);
+        List<Long> generations = log.existingGenerations();
+        log.generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1) + 1;
+        log.channel = log.openGeneration(log.generation);
+        log.flusher.start();
+        return log;
+    }
+
+    // Replays every older generation onto a catalog loaded from the snapshot; a torn record at the end of a file
+    // (crash in the middle of a write) ends that file's replay
+    public int recover(LibraryService library) throws IOException {
+        int replayed = 0;
+
+        for (long olderGeneration : existingGenerations()) {
+            if (olderGeneration >= generation) {
+                break;
+            }
+
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(generationPath(olderGeneration)))) {
+                DataInputStream data = new DataInputStream(input);
+                byte[] payload;
+
+                while ((payload = readRecord(data)) != null) {
+                    apply(library, payload);
+                    replayed++;
+                }
+            }
+        }
+
+        return replayed;
+    }
+
+    public long logPut(Book book) {
+        return append(Collections.singletonList(putRecord(book)));
+    }
+
+    // Appends every record under one lock acquisition, so a failure leaves none of them in the log
+    public long logPuts(Collection<Book> books) {
+        List<byte[]> payloads = new ArrayList<>(books.size());
+
+        for (Book book : books) {
+            payloads.add(putRecord(book));
+        }
+
+        return append(payloads);
+    }
+
+    public long logRemove(String isbn) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(32);
+
+        try (DataOutputStream data = new DataOutputStream(payload)) {
+            data.writeByte(REMOVE);
+            data.writeUTF(isbn);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ISBN não pode ser gravado no log: " + e.getMessage());
+        }
+
+        return append(Collections.singletonList(payload.toByteArray()));
+    }
+
+    private static byte[] putRecord(Book book) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+
+        try (DataOutputStream data = new DataOutputStream(payload)) {
+            data.writeByte(PUT);
+            data.writeUTF(book.getIsbn());
+            data.writeUTF(book.getTitle());
+            data.writeUTF(book.getAuthor());
+            data.writeInt(book.getYear() == null ? NO_YEAR : book.getYear());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Livro não pode ser gravado no log: " + e.getMessage());
+        }
+
+        return payload.toByteArray();
+    }
+
+    public void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Falha ao gravar o log de alterações", failure);
+                }
+                if (closed && !writing && pendingLength == 0) {
+                    throw new IllegalStateException("Log de alterações já foi fechado");
+                }
+                waitForFlusher();
+            }
+        }
+    }
+
+    public void sync() {
+        long sequence;
+        synchronized (lock) {
+            sequence = appendedSequence;
+        }
+        awaitDurable(sequence);
+    }
+
+    public boolean shouldCompact() {
+        synchronized (lock) {
+            return bytesSinceRotation >= COMPACTION_THRESHOLD && !compacting.get();
+        }
+    }
+
+    // Flushes the current generation and starts a new one; returns the generation that was closed.
+    // The caller must make sure no change is applied between capturing its snapshot and this call.
+    public long rotate() throws IOException {
+        synchronized (lock) {
+            while (durableSequence < appendedSequence || writing) {
+                if (failure != null) {
+                    throw failure;
+                }
+                waitForFlusher();
+            }
+
+            channel.close();
+            long closedGeneration = generation;
+            generation++;
+            channel = openGeneration(generation);
+            bytesSinceRotation = 0;
+            return closedGeneration;
+        }
+    }
+
+    // Compaction takes three steps: startCompaction(), then the caller captures its snapshot and calls rotate()
+    // with no change applied in between, then compact(). The guard is held from the first step to the last, so
+    // two compactions never interleave and an older snapshot is never written over a newer one.
+    public boolean startCompaction() {
+        return compacting.compareAndSet(false, true);
+    }
+
+    // Releases the guard when the caller gives up between startCompaction() and compact()
+    public void cancelCompaction() {
+        compacting.set(false);
+    }
+
+    // Writes the snapshot taken before rotate() over the CSV (then over the binary catalog, when there is one) and
+    // drops the log generations it already contains. Returns the new binary catalog, or null without one.
+    // A crash at any point leaves either the old snapshot with all generations or the new one with extra
+    // generations, and replaying those is harmless; a catalog older than the CSV is regenerated on startup.
+    public MappedCatalog compact(List<Book> snapshot, long lastGeneration) throws IOException {
+        if (!compacting.get()) {
+            throw new IllegalStateException("Compactação não foi iniciada");
+        }
+
+        try {
+            if (lastGeneration <= compactedGeneration) {
+                return null;
+            }
+
+            BookApiService.writeBooksToCsv(snapshot, snapshotPath);
+            if (catalogPath != null) {
+                MappedCatalog.write(snapshot, catalogPath);
+            }
+            compactedGeneration = lastGeneration;
+
+            for (long olderGeneration : existingGenerations()) {
+                if (olderGeneration <= lastGeneration) {
+                    Files.deleteIfExists(generationPath(olderGeneration));
+                }
+            }
+
+            return catalogPath == null ? null : MappedCatalog.open(catalogPath);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (lock) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private long append(List<byte[]> payloads) {
+        int[] checksums = new int[payloads.size()];
+        int batchSize = 0;
+        CRC32 crc = new CRC32();
+
+        for (int i = 0; i < checksums.length; i++) {
+            byte[] payload = payloads.get(i);
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            checksums[i] = (int) crc.getValue();
+            batchSize += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Log de alterações já foi fechado");
+            }
+
+            ensurePendingCapacity(batchSize);
+            ByteBuffer records = ByteBuffer.wrap(pending, pendingLength, batchSize);
+
+            for (int i = 0; i < checksums.length; i++) {
+                byte[] payload = payloads.get(i);
+                records.putInt(payload.length);
+                records.putInt(checksums[i]);
+                records.put(payload);
+            }
+
+            pendingLength += batchSize;
+            bytesSinceRotation += batchSize;
+
+            lock.notifyAll();
+            return ++appendedSequence;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            int batchLength;
+            long batchSequence;
+            FileChannel target;
+
+            synchronized (lock) {
+                while (pendingLength == 0 && !closed) {
+                    waitForFlusher();
+                }
+
+                if (pendingLength == 0) {
+                    lock.notifyAll();
+                    return;
+                }
+
+                batch = pending;
+                batchLength = pendingLength;
+                batchSequence = appendedSequence;
+                target = channel;
+
+                pending = spare;
+                pendingLength = 0;
+                writing = true;
+            }
+
+            IOException error = null;
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch, 0, batchLength);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                spare = batch;
+                writing = false;
+
+                if (error != null) {
+                    failure = error;
+                    closed = true;
+                    pendingLength = 0;
+                } else {
+                    durableSequence = batchSequence;
+                }
+
+                lock.notifyAll();
+
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void waitForFlusher() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o log de alterações", e);
+        }
+    }
+
+    private void ensurePendingCapacity(int recordSize) {
+        if (pendingLength + recordSize > pending.length) {
+            byte[] grown = new byte[Math.max(pendingLength + recordSize, pending.length * 2)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+    }
+
+    private static byte[] readRecord(DataInputStream data) throws IOException {
+        try {
+            int length = data.readInt();
+            int checksum = data.readInt();
+
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(LibraryService library, byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = data.readByte();
+        String isbn = data.readUTF();
+
+        if (type == PUT) {
+            String title = data.readUTF();
+            String author = data.readUTF();
+            int year = data.readInt();
+            library.restoreBook(new Book(title, author, isbn, year == NO_YEAR ? null : year));
+        } else if (type == REMOVE) {
+            library.restoreRemoval(isbn);
+        } else {
+            throw new IOException("Tipo de registro desconhecido no log: " + type);
+        }
+    }
+
+    private FileChannel openGeneration(long number) throws IOException {
+        return FileChannel.open(generationPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path generationPath(long number) {
+        return logPath.resolveSibling(logPath.getFileName() + "." + number);
+    }
+
+    private List<Long> existingGenerations() throws IOException {
+        TreeSet<Long> generations = new TreeSet<>();
+        String prefix = logPath.getFileName() + ".";
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logPath.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    generations.add(Long.parseLong(file.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not a log generation, e.g. some other file sharing the prefix
+                }
+            }
+        }
+
+        return new ArrayList<>(generations);
+    }
+}
@@ -0,0 +1,325 @@
+package structure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+// Immutable: add and remove return a new tree that shares every node off the path they change, so readers can keep
+// searching an older tree while a writer builds the next one. Builder fills a large tree in place instead.
+public final class BKTree<V> {
+
+    private static final Object[] NONE = new Object[0];
+    private static final BKTree<?> EMPTY = new BKTree<>(null, 0, 0, 0);
+
+    // Only a Builder changes a node, and only before build() hands the tree out
+    private static final class Node {
+        final String key;
+        Object[] values;
+        Object[] children;
+        int maxChildDistance;
+
+        Node(String key, Object[] values, Object[] children, int maxChildDistance) {
+            this.key = key;
+            this.values = values;
+            this.children = children;
+            this.maxChildDistance = maxChildDistance;
+        }
+
+        Node child(int distance) {
+            return distance < children.length ? (Node) children[distance] : null;
+        }
+
+        Node withValues(Object[] newValues) {
+            return new Node(key, newValues, children, maxChildDistance);
+        }
+
+        Node withChild(int distance, Node child) {
+            Object[] newChildren = Arrays.copyOf(children, Math.max(children.length, distance + 1));
+            newChildren[distance] = child;
+            return new Node(key, values, newChildren, Math.max(maxChildDistance, distance));
+        }
+
+        void setChild(int distance, Node child) {
+            if (distance >= children.length) {
+                children = Arrays.copyOf(children, Math.max(distance + 1, children.length * 2));
+            }
+            children[distance] = child;
+            maxChildDistance = Math.max(maxChildDistance, distance);
+        }
+    }
+
+    public static final class Builder<V> {
+        private Node root;
+        private int size;
+        private int nodeCount;
+
+        public Builder<V> add(String key, V value) {
+            if (root == null) {
+                root = new Node(key, new Object[] { value }, NONE, 0);
+                nodeCount++;
+                size++;
+                return this;
+            }
+
+            Node node = root;
+
+            while (true) {
+                int distance = distance(key, node.key, Integer.MAX_VALUE);
+
+                if (distance == 0) {
+                    node.values = append(node.values, value);
+                    break;
+                }
+
+                Node child = node.child(distance);
+                if (child == null) {
+                    node.setChild(distance, new Node(key, new Object[] { value }, NONE, 0));
+                    nodeCount++;
+                    break;
+                }
+
+                node = child;
+            }
+
+            size++;
+            return this;
+        }
+
+        public BKTree<V> build() {
+            BKTree<V> tree = root == null ? empty() : new BKTree<>(root, size, nodeCount, 0);
+            root = null;
+            size = 0;
+            nodeCount = 0;
+            return tree;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+    private final int nodeCount;
+    private final int emptyNodeCount;
+
+    private BKTree(Node root, int size, int nodeCount, int emptyNodeCount) {
+        this.root = root;
+        this.size = size;
+        this.nodeCount = nodeCount;
+        this.emptyNodeCount = emptyNodeCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> BKTree<V> empty() {
+        return (BKTree<V>) EMPTY;
+    }
+
+    public BKTree<V> add(String key, V value) {
+        Node existing = find(key);
+        int nodes = existing == null ? nodeCount + 1 : nodeCount;
+        int emptyNodes = existing != null && existing.values.length == 0 ? emptyNodeCount - 1 : emptyNodeCount;
+        return new BKTree<>(added(root, key, value), size + 1, nodes, emptyNodes);
+    }
+
+    // The value is dropped but its node stays, since it routes searches to its children; once too many nodes are
+    // empty the tree is rebuilt from the live keys, so it doesn't grow without bound when titles keep changing
+    public BKTree<V> remove(String key, V value) {
+        Node existing = find(key);
+
+        if (existing == null || indexOf(existing.values, value) < 0) {
+            return this;
+        }
+
+        int emptyNodes = existing.values.length == 1 ? emptyNodeCount + 1 : emptyNodeCount;
+        BKTree<V> tree = new BKTree<>(removed(root, key, value), size - 1, nodeCount, emptyNodes);
+
+        // Rebuilt once the empty nodes outnumber half of the nodes that still have values
+        return emptyNodes > (nodeCount - emptyNodes) / 2 ? tree.rebuild() : tree;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Nodes in the tree, including the ones whose values were all removed
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    private Node find(String key) {
+        Node node = root;
+
+        while (node != null) {
+            int distance = distance(key, node.key, Integer.MAX_VALUE);
+
+            if (distance == 0) {
+                return node;
+            }
+
+            node = node.child(distance);
+        }
+
+        return null;
+    }
+
+    private static Node added(Node node, String key, Object value) {
+        if (node == null) {
+            return new Node(key, new Object[] { value }, NONE, 0);
+        }
+
+        int distance = distance(key, node.key, Integer.MAX_VALUE);
+
+        if (distance == 0) {
+            return node.withValues(append(node.values, value));
+        }
+
+        return node.withChild(distance, added(node.child(distance), key, value));
+    }
+
+    private static Node removed(Node node, String key, Object value) {
+        int distance = distance(key, node.key, Integer.MAX_VALUE);
+
+        if (distance == 0) {
+            int index = indexOf(node.values, value);
+            Object[] values = new Object[node.values.length - 1];
+            System.arraycopy(node.values, 0, values, 0, index);
+            System.arraycopy(node.values, index + 1, values, index, values.length - index);
+            return node.withValues(values);
+        }
+
+        return node.withChild(distance, removed(node.child(distance), key, value));
+    }
+
+    // Reinserts the live nodes breadth-first, which keeps the upper levels close to the old shape
+    @SuppressWarnings("unchecked")
+    private BKTree<V> rebuild() {
+        Builder<V> builder = new Builder<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.add(root);
+        }
+
+        while (!pending.isEmpty()) {
+            Node old = pending.poll();
+
+            for (Object value : old.values) {
+                builder.add(old.key, (V) value);
+            }
+
+            for (int i = 1; i <= old.maxChildDistance; i++) {
+                Node child = old.child(i);
+                if (child != null) {
+                    pending.add(child);
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    public List<V> search(String query, int maxDistance, int limit) {
+        List<V> results = new ArrayList<>();
+
+        for (List<V> values : searchByDistance(query, maxDistance)) {
+            for (V value : values) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                results.add(value);
+            }
+        }
+
+        return results;
+    }
+
+    // Every value within maxDistance, grouped by its distance to the query: element i holds distance i
+    @SuppressWarnings("unchecked")
+    public List<List<V>> searchByDistance(String query, int maxDistance) {
+        List<List<V>> byDistance = new ArrayList<>();
+        for (int i = 0; i <= maxDistance; i++) {
+            byDistance.add(new ArrayList<>());
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+
+            // Past maxChildDistance + maxDistance neither the node nor any child can match
+            int distance = distance(query, node.key, node.maxChildDistance + maxDistance);
+
+            if (distance <= maxDistance) {
+                for (Object value : node.values) {
+                    byDistance.get(distance).add((V) value);
+                }
+            }
+
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.maxChildDistance, distance + maxDistance);
+
+            for (int i = from; i <= to; i++) {
+                Node child = node.child(i);
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+
+        return byDistance;
+    }
+
+    private static Object[] append(Object[] values, Object value) {
+        Object[] grown = Arrays.copyOf(values, values.length + 1);
+        grown[values.length] = value;
+        return grown;
+    }
+
+    private static int indexOf(Object[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Levenshtein distance with two rows; gives up with limit + 1 as soon as every cell of a row exceeds the limit
+    public static int distance(String first, String second, int limit) {
+        int exceeded = limit == Integer.MAX_VALUE ? limit : limit + 1;
+
+        if (Math.abs(first.length() - second.length()) > limit) {
+            return exceeded;
+        }
+
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            char c = first.charAt(i - 1);
+
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (c == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+
+            if (rowMinimum > limit) {
+                return exceeded;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return Math.min(previous[second.length()], exceeded);
+    }
+}
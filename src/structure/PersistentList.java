@@ -0,0 +1,489 @@
+package structure;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public final class PersistentList<E> extends AbstractList<E> {
+
+    private static final int MAX_NODE_SIZE = 32;
+    private static final int MIN_NODE_SIZE = MAX_NODE_SIZE / 2;
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private abstract static class Node {
+        abstract int size();
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] items;
+
+        Leaf(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        int size() {
+            return items.length;
+        }
+    }
+
+    // A run of elements read from a list that never changes, so a large catalog becomes a list without copying it.
+    // Slices sit at the leaf level; a change inside one splits it and only the changed element gets a real leaf.
+    private static final class Slice extends Node {
+        final List<?> source;
+        final int from;
+        final int to;
+
+        Slice(List<?> source, int from, int to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        int size() {
+            return to - from;
+        }
+
+        Leaf toLeaf() {
+            Object[] items = new Object[to - from];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = source.get(from + i);
+            }
+            return new Leaf(items);
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children;
+        final int[] ends;
+
+        Branch(Node[] children) {
+            this.children = children;
+            this.ends = new int[children.length];
+
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                total += children[i].size();
+                ends[i] = total;
+            }
+        }
+
+        @Override
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        int childFor(int index) {
+            int left = 0;
+            int right = ends.length - 1;
+
+            while (left < right) {
+                int middle = left + (right - left) / 2;
+                if (ends[middle] > index) {
+                    right = middle;
+                } else {
+                    left = middle + 1;
+                }
+            }
+
+            return left;
+        }
+
+        int offsetOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+    }
+
+    private final Node root;
+
+    private PersistentList(Node root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    // The list is used in place and must not change afterwards; reads go to it until an element is changed
+    public static <E> PersistentList<E> view(List<? extends E> source) {
+        return source.isEmpty() ? empty() : new PersistentList<>(new Slice(source, 0, source.size()));
+    }
+
+    public static <E> PersistentList<E> of(Collection<? extends E> elements) {
+        Object[] items = elements.toArray();
+
+        if (items.length == 0) {
+            return empty();
+        }
+
+        int leafCount = (items.length + MAX_NODE_SIZE - 1) / MAX_NODE_SIZE;
+        Node[] level = new Node[leafCount];
+
+        for (int i = 0; i < leafCount; i++) {
+            int from = i * MAX_NODE_SIZE;
+            int to = Math.min(items.length, from + MAX_NODE_SIZE);
+            Object[] leafItems = new Object[to - from];
+            System.arraycopy(items, from, leafItems, 0, to - from);
+            level[i] = new Leaf(leafItems);
+        }
+
+        while (level.length > 1) {
+            int branchCount = (level.length + MAX_NODE_SIZE - 1) / MAX_NODE_SIZE;
+            Node[] parents = new Node[branchCount];
+
+            for (int i = 0; i < branchCount; i++) {
+                int from = i * MAX_NODE_SIZE;
+                int to = Math.min(level.length, from + MAX_NODE_SIZE);
+                Node[] children = new Node[to - from];
+                System.arraycopy(level, from, children, 0, to - from);
+                parents[i] = new Branch(children);
+            }
+
+            level = parents;
+        }
+
+        return new PersistentList<>(level[0]);
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size());
+
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childFor(index);
+            index -= branch.offsetOf(child);
+            node = branch.children[child];
+        }
+
+        return (E) elementAt(node, index);
+    }
+
+    public PersistentList<E> insert(int index, E element) {
+        checkIndex(index, size() + 1);
+
+        if (root == null) {
+            return new PersistentList<>(new Leaf(new Object[] { element }));
+        }
+
+        return new PersistentList<>(rootOf(insert(root, index, element)));
+    }
+
+    public PersistentList<E> removeAt(int index) {
+        checkIndex(index, size());
+
+        Node node = rootOf(removeAt(root, index));
+
+        while (node instanceof Branch && ((Branch) node).children.length == 1) {
+            node = ((Branch) node).children[0];
+        }
+
+        return node.size() == 0 ? empty() : new PersistentList<>(node);
+    }
+
+    public PersistentList<E> replace(int index, E element) {
+        checkIndex(index, size());
+        return new PersistentList<>(rootOf(replace(root, index, element)));
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size()];
+        if (root != null) {
+            copyInto(root, result, 0);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final int size = size();
+            private int index;
+            private Node leaf;
+            private int leafIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                if (leaf == null || leafIndex == leaf.size()) {
+                    findLeaf();
+                }
+
+                index++;
+                return (E) elementAt(leaf, leafIndex++);
+            }
+
+            private void findLeaf() {
+                Node node = root;
+                int position = index;
+
+                while (node instanceof Branch) {
+                    Branch branch = (Branch) node;
+                    int child = branch.childFor(position);
+                    position -= branch.offsetOf(child);
+                    node = branch.children[child];
+                }
+
+                leaf = node;
+                leafIndex = position;
+            }
+        };
+    }
+
+    // Path copying: only the nodes on the way to the element are rebuilt, every other subtree is shared
+    private static Node[] insert(Node node, int index, Object element) {
+        if (node instanceof Slice) {
+            Slice slice = (Slice) node;
+
+            if (slice.size() >= MAX_NODE_SIZE) {
+                return splitAround(slice, index, index, element);
+            }
+            node = slice.toLeaf();
+        }
+
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            Object[] updated = new Object[items.length + 1];
+            System.arraycopy(items, 0, updated, 0, index);
+            updated[index] = element;
+            System.arraycopy(items, index, updated, index + 1, items.length - index);
+
+            if (updated.length <= MAX_NODE_SIZE) {
+                return new Node[] { new Leaf(updated) };
+            }
+
+            int half = updated.length / 2;
+            Object[] left = new Object[half];
+            Object[] right = new Object[updated.length - half];
+            System.arraycopy(updated, 0, left, 0, half);
+            System.arraycopy(updated, half, right, 0, right.length);
+            return new Node[] { new Leaf(left), new Leaf(right) };
+        }
+
+        Branch branch = (Branch) node;
+        int child = index == branch.size() ? branch.children.length - 1 : branch.childFor(index);
+        Node[] replacement = insert(branch.children[child], index - branch.offsetOf(child), element);
+        return split(splice(branch.children, child, replacement));
+    }
+
+    // Replaces one child with its rebuilt nodes
+    private static Node[] splice(Node[] children, int child, Node[] replacement) {
+        Node[] updated = new Node[children.length + replacement.length - 1];
+        System.arraycopy(children, 0, updated, 0, child);
+        System.arraycopy(replacement, 0, updated, child, replacement.length);
+        System.arraycopy(children, child + 1, updated, child + replacement.length, children.length - child - 1);
+        return updated;
+    }
+
+    private static Node[] split(Node[] children) {
+        if (children.length <= MAX_NODE_SIZE) {
+            return new Node[] { new Branch(children) };
+        }
+
+        int half = children.length / 2;
+        Node[] left = new Node[half];
+        Node[] right = new Node[children.length - half];
+        System.arraycopy(children, 0, left, 0, half);
+        System.arraycopy(children, half, right, 0, right.length);
+        return new Node[] { new Branch(left), new Branch(right) };
+    }
+
+    // The slice before index, the element in a leaf of its own, and the slice from skipTo on
+    private static Node[] splitAround(Slice slice, int index, int skipTo, Object element) {
+        Node[] nodes = new Node[3];
+        int count = 0;
+
+        if (index > 0) {
+            nodes[count++] = new Slice(slice.source, slice.from, slice.from + index);
+        }
+        if (element != null) {
+            nodes[count++] = new Leaf(new Object[] { element });
+        }
+        if (slice.from + skipTo < slice.to) {
+            nodes[count++] = new Slice(slice.source, slice.from + skipTo, slice.to);
+        }
+
+        Node[] result = new Node[count];
+        System.arraycopy(nodes, 0, result, 0, count);
+        return result;
+    }
+
+    private static Node rootOf(Node[] nodes) {
+        return nodes.length == 1 ? nodes[0] : new Branch(nodes);
+    }
+
+    // A node left with fewer than MIN_NODE_SIZE slots is merged with a sibling, or takes slots from it when
+    // both don't fit in one node, so deletions keep the tree as shallow and as full as insertions do
+    private static Node[] removeAt(Node node, int index) {
+        if (node instanceof Slice) {
+            Slice slice = (Slice) node;
+
+            if (slice.size() > MAX_NODE_SIZE) {
+                return splitAround(slice, index, index + 1, null);
+            }
+            node = slice.toLeaf();
+        }
+
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            Object[] updated = new Object[items.length - 1];
+            System.arraycopy(items, 0, updated, 0, index);
+            System.arraycopy(items, index + 1, updated, index, items.length - index - 1);
+            return new Node[] { new Leaf(updated) };
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Node[] replacement = removeAt(branch.children[child], index - branch.offsetOf(child));
+        Node[] children = splice(branch.children, child, replacement);
+
+        for (int i = child + replacement.length - 1; i >= child && children.length > 1; i--) {
+            if (i < children.length && slotsOf(children[i]) < MIN_NODE_SIZE) {
+                children = joinWithSibling(children, i);
+            }
+        }
+
+        return split(children);
+    }
+
+    private static Node[] joinWithSibling(Node[] children, int child) {
+        int left = child > 0 ? child - 1 : child;
+        Node[] joined = join(children[left], children[left + 1]);
+
+        Node[] updated = new Node[children.length - 2 + joined.length];
+        System.arraycopy(children, 0, updated, 0, left);
+        System.arraycopy(joined, 0, updated, left, joined.length);
+        System.arraycopy(children, left + 2, updated, left + joined.length, children.length - left - 2);
+        return updated;
+    }
+
+    // Siblings always have the same height, so they are both leaves or both branches. A slice too large for a
+    // leaf is left as it is, next to its small neighbour.
+    private static Node[] join(Node left, Node right) {
+        if (left instanceof Slice || right instanceof Slice) {
+            if (left.size() + right.size() > 2 * MAX_NODE_SIZE) {
+                return new Node[] { left, right };
+            }
+            left = left instanceof Slice ? ((Slice) left).toLeaf() : left;
+            right = right instanceof Slice ? ((Slice) right).toLeaf() : right;
+        }
+
+        if (left instanceof Leaf) {
+            Object[] leftItems = ((Leaf) left).items;
+            Object[] rightItems = ((Leaf) right).items;
+            Object[] items = new Object[leftItems.length + rightItems.length];
+            System.arraycopy(leftItems, 0, items, 0, leftItems.length);
+            System.arraycopy(rightItems, 0, items, leftItems.length, rightItems.length);
+
+            if (items.length <= MAX_NODE_SIZE) {
+                return new Node[] { new Leaf(items) };
+            }
+
+            int half = items.length / 2;
+            Object[] first = new Object[half];
+            Object[] second = new Object[items.length - half];
+            System.arraycopy(items, 0, first, 0, half);
+            System.arraycopy(items, half, second, 0, second.length);
+            return new Node[] { new Leaf(first), new Leaf(second) };
+        }
+
+        Node[] leftChildren = ((Branch) left).children;
+        Node[] rightChildren = ((Branch) right).children;
+        Node[] children = new Node[leftChildren.length + rightChildren.length];
+        System.arraycopy(leftChildren, 0, children, 0, leftChildren.length);
+        System.arraycopy(rightChildren, 0, children, leftChildren.length, rightChildren.length);
+
+        if (children.length <= MAX_NODE_SIZE) {
+            return new Node[] { new Branch(children) };
+        }
+
+        int half = children.length / 2;
+        Node[] first = new Node[half];
+        Node[] second = new Node[children.length - half];
+        System.arraycopy(children, 0, first, 0, half);
+        System.arraycopy(children, half, second, 0, second.length);
+        return new Node[] { new Branch(first), new Branch(second) };
+    }
+
+    private static int slotsOf(Node node) {
+        return node instanceof Branch ? ((Branch) node).children.length : node.size();
+    }
+
+    private static Node[] replace(Node node, int index, Object element) {
+        if (node instanceof Slice) {
+            Slice slice = (Slice) node;
+
+            if (slice.size() > MAX_NODE_SIZE) {
+                return splitAround(slice, index, index + 1, element);
+            }
+            node = slice.toLeaf();
+        }
+
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items.clone();
+            items[index] = element;
+            return new Node[] { new Leaf(items) };
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Node[] replacement = replace(branch.children[child], index - branch.offsetOf(child), element);
+        return split(splice(branch.children, child, replacement));
+    }
+
+    private static Object elementAt(Node leaf, int index) {
+        if (leaf instanceof Slice) {
+            Slice slice = (Slice) leaf;
+            return slice.source.get(slice.from + index);
+        }
+        return ((Leaf) leaf).items[index];
+    }
+
+    private static int copyInto(Node node, Object[] target, int offset) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            System.arraycopy(items, 0, target, offset, items.length);
+            return offset + items.length;
+        }
+
+        if (node instanceof Slice) {
+            Slice slice = (Slice) node;
+            for (int i = slice.from; i < slice.to; i++) {
+                target[offset++] = slice.source.get(i);
+            }
+            return offset;
+        }
+
+        for (Node child : ((Branch) node).children) {
+            offset = copyInto(child, target, offset);
+        }
+        return offset;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice: " + index + ", Tamanho: " + size);
+        }
+    }
+}
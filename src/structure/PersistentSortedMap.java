@@ -0,0 +1,99 @@
+package structure;
+
+import java.util.function.BiConsumer;
+
+// Entries kept in key order in a PersistentList, found by binary search; put and remove return a new map and leave
+// this one as it was
+public final class PersistentSortedMap<K extends Comparable<? super K>, V> {
+
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(PersistentList.empty());
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final PersistentList<Entry<K, V>> entries;
+
+    private PersistentSortedMap(PersistentList<Entry<K, V>> entries) {
+        this.entries = entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    public V get(K key) {
+        int index = indexOf(key);
+        return index >= 0 ? entries.get(index).value : null;
+    }
+
+    public boolean containsKey(K key) {
+        return indexOf(key) >= 0;
+    }
+
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        int index = indexOf(key);
+
+        if (index >= 0) {
+            return new PersistentSortedMap<>(entries.replace(index, new Entry<>(key, value)));
+        }
+
+        return new PersistentSortedMap<>(entries.insert(-index - 1, new Entry<>(key, value)));
+    }
+
+    public PersistentSortedMap<K, V> remove(K key) {
+        int index = indexOf(key);
+        return index < 0 ? this : new PersistentSortedMap<>(entries.removeAt(index));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public K keyAt(int index) {
+        return entries.get(index).key;
+    }
+
+    public V valueAt(int index) {
+        return entries.get(index).value;
+    }
+
+    // In key order
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> entry : entries) {
+            action.accept(entry.key, entry.value);
+        }
+    }
+
+    // Index of the key, or -(insertion point) - 1 like Arrays.binarySearch
+    private int indexOf(K key) {
+        int left = 0;
+        int right = entries.size() - 1;
+
+        while (left <= right) {
+            int middle = left + (right - left) / 2;
+            int comparison = entries.get(middle).key.compareTo(key);
+
+            if (comparison < 0) {
+                left = middle + 1;
+            } else if (comparison > 0) {
+                right = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -left - 1;
+    }
+}
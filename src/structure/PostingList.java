@@ -0,0 +1,142 @@
+package structure;
+
+public class PostingList {
+
+    private int[] ids;
+    private int size;
+
+    public PostingList() {
+        this.ids = new int[4];
+    }
+
+    private PostingList(int[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    // New ids usually come in increasing order and are appended; a smaller (reused) id is inserted in place
+    public void add(int id) {
+        int position = size;
+
+        if (size > 0 && ids[size - 1] >= id) {
+            position = search(id, 0);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+        }
+
+        if (size == ids.length) {
+            int[] grown = new int[size * 2];
+            System.arraycopy(ids, 0, grown, 0, size);
+            ids = grown;
+        }
+
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    public boolean remove(int id) {
+        int index = indexOf(id);
+
+        if (index < 0) {
+            return false;
+        }
+
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public int get(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public PostingList intersect(PostingList other) {
+        PostingList smaller = size <= other.size ? this : other;
+        PostingList larger = smaller == this ? other : this;
+        int[] result = new int[smaller.size];
+        int count = 0;
+        int from = 0;
+
+        for (int i = 0; i < smaller.size && from < larger.size; i++) {
+            int position = larger.search(smaller.ids[i], from);
+            if (position >= 0) {
+                result[count++] = smaller.ids[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+
+        return new PostingList(result, count);
+    }
+
+    public PostingList union(PostingList other) {
+        int[] result = new int[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size && j < other.size) {
+            if (ids[i] < other.ids[j]) {
+                result[count++] = ids[i++];
+            } else if (ids[i] > other.ids[j]) {
+                result[count++] = other.ids[j++];
+            } else {
+                result[count++] = ids[i++];
+                j++;
+            }
+        }
+
+        while (i < size) {
+            result[count++] = ids[i++];
+        }
+
+        while (j < other.size) {
+            result[count++] = other.ids[j++];
+        }
+
+        return new PostingList(result, count);
+    }
+
+    private int indexOf(int id) {
+        int position = search(id, 0);
+        return position >= 0 ? position : -1;
+    }
+
+    // Galloping search from a starting index: doubles the step until it passes the id, then
+    // binary searches that window. Returns the index, or -(insertion point) - 1 when absent
+    private int search(int id, int from) {
+        int bound = 1;
+        while (from + bound < size && ids[from + bound] < id) {
+            bound <<= 1;
+        }
+
+        int left = from + (bound >> 1);
+        int right = Math.min(from + bound, size - 1);
+
+        while (left <= right) {
+            int middle = left + (right - left) / 2;
+
+            if (ids[middle] == id) {
+                return middle;
+            } else if (ids[middle] < id) {
+                left = middle + 1;
+            } else {
+                right = middle - 1;
+            }
+        }
+
+        return -(left + 1);
+    }
+}
@@ -0,0 +1,127 @@
+package structure;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StringDictionary {
+
+    private byte[] heap = new byte[1024];
+    private int heapSize;
+    private int[] offsets = new int[17];
+    private int size;
+    private Map<String, Integer> ids = new HashMap<>();
+
+    public int intern(String value) {
+        if (ids == null) {
+            throw new IllegalStateException("Dicionário já foi compactado");
+        }
+
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        if (heapSize + bytes.length > heap.length) {
+            byte[] grown = new byte[Math.max(heapSize + bytes.length, heap.length * 2)];
+            System.arraycopy(heap, 0, grown, 0, heapSize);
+            heap = grown;
+        }
+
+        if (size + 2 > offsets.length) {
+            int[] grown = new int[offsets.length * 2];
+            System.arraycopy(offsets, 0, grown, 0, size + 1);
+            offsets = grown;
+        }
+
+        System.arraycopy(bytes, 0, heap, heapSize, bytes.length);
+        heapSize += bytes.length;
+        offsets[size + 1] = heapSize;
+
+        ids.put(value, size);
+        return size++;
+    }
+
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Id: " + id + ", Tamanho: " + size);
+        }
+
+        return new String(heap, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Compares the stored string with value in String.compareTo order, decoding the UTF-8 as it goes instead of
+    // building a String; with foldAsciiCase the stored capitals A-Z compare as lower case letters
+    public int compareTo(int id, String value, boolean foldAsciiCase) {
+        return compare(id, value, foldAsciiCase, false);
+    }
+
+    public boolean startsWith(int id, String prefix, boolean foldAsciiCase) {
+        return compare(id, prefix, foldAsciiCase, true) == 0;
+    }
+
+    private int compare(int id, String value, boolean foldAsciiCase, boolean prefixOnly) {
+        int position = offsets[id];
+        int end = offsets[id + 1];
+        int index = 0;
+        char lowSurrogate = 0;
+
+        while (position < end || lowSurrogate != 0) {
+            char c;
+
+            if (lowSurrogate != 0) {
+                c = lowSurrogate;
+                lowSurrogate = 0;
+            } else {
+                int first = heap[position] & 0xFF;
+
+                if (first < 0x80) {
+                    c = (char) (foldAsciiCase && first >= 'A' && first <= 'Z' ? first + ('a' - 'A') : first);
+                    position++;
+                } else if (first < 0xE0) {
+                    c = (char) ((first & 0x1F) << 6 | heap[position + 1] & 0x3F);
+                    position += 2;
+                } else if (first < 0xF0) {
+                    c = (char) ((first & 0x0F) << 12 | (heap[position + 1] & 0x3F) << 6 | heap[position + 2] & 0x3F);
+                    position += 3;
+                } else {
+                    int codePoint = (first & 0x07) << 18 | (heap[position + 1] & 0x3F) << 12
+                            | (heap[position + 2] & 0x3F) << 6 | heap[position + 3] & 0x3F;
+                    c = Character.highSurrogate(codePoint);
+                    lowSurrogate = Character.lowSurrogate(codePoint);
+                    position += 4;
+                }
+            }
+
+            if (index == value.length()) {
+                return prefixOnly ? 0 : 1;
+            }
+
+            char wanted = value.charAt(index++);
+            if (c != wanted) {
+                return c - wanted;
+            }
+        }
+
+        return index == value.length() ? 0 : -1;
+    }
+
+    // Drops the lookup table and the spare capacity once no more strings will be added
+    public void compact() {
+        ids = null;
+
+        byte[] trimmedHeap = new byte[heapSize];
+        System.arraycopy(heap, 0, trimmedHeap, 0, heapSize);
+        heap = trimmedHeap;
+
+        int[] trimmedOffsets = new int[size + 1];
+        System.arraycopy(offsets, 0, trimmedOffsets, 0, size + 1);
+        offsets = trimmedOffsets;
+    }
+}